@@ -0,0 +1,52 @@
+package sim;
+
+import java.util.ArrayList;
+
+/**
+ * BatchCheck.java
+ * @description Checks that a BatchEvaluator scores every car exactly like an Evaluator, which lets both share the
+ * fitness cache and evaluation store. The same random genomes are run car by car and as batches on a few threads, on a
+ * track of tiles, a chain and a streamed track, and the check fails if any fitness differs. It runs with gradle check
+ *
+ * Usage: gradle batchCheck
+ *
+ */
+public class BatchCheck {
+
+    private static final long SEED = 7;
+    private static final long TRACK_SEED = 5; //the seed of the streamed track
+    private static final int CARS = 60;
+    private static final int THREADS = 3;
+
+    public static void main(String[] args) {
+        Evaluator.prescreening = false; //every car is simulated
+        RandomSource random = new RandomSource(SEED);
+        ArrayList<float[]> track = Ground.randomTrack(random);
+        float[] genes = Evolution.randomPopulation(CARS, random).genes();
+        boolean passed = true;
+        for (String mode : new String[]{"tiles", "chain", "streamed"}) {
+            Ground.useChain = mode.equals("chain");
+            Ground.streaming = mode.equals("streamed");
+            Evaluator evaluator = Ground.streaming ? new Evaluator(TRACK_SEED) : new Evaluator(track);
+            BatchEvaluator batch = Ground.streaming ? new BatchEvaluator(TRACK_SEED, THREADS, null, null) : new BatchEvaluator(track, THREADS, null, null);
+            int[] cars = new int[CARS];
+            for (int i = 0; i < CARS; i++) {
+                cars[i] = i;
+            }
+            float[] batched = new float[CARS];
+            batch.evaluate(genes, cars, CARS, batched);
+            batch.shutdown();
+            int differ = 0;
+            for (int i = 0; i < CARS; i++) {
+                if (evaluator.screen(genes, i * Population.GENOME_LENGTH, 0) != batched[i]) {
+                    differ++;
+                }
+            }
+            System.out.printf("%-8s %d of %d cars scored differently in a batch%n", mode, differ, CARS);
+            passed &= differ == 0;
+        }
+        System.out.println(passed ? "Batch check passed" : "Batch check FAILED: batched cars scored differently");
+        System.exit(passed ? 0 : 1);
+    }
+
+}
@@ -0,0 +1,79 @@
+package sim;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * BreedingBenchmark.java
+ * @description Measures breeding a whole generation, selection, crossover and mutation, on different numbers of
+ * threads. The population is a few thousand random cars repeated, since building a million cars takes far longer
+ * than breeding them
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+public class BreedingBenchmark {
+
+    private static final int DISTINCT_CARS = 4096;
+
+    @Param({"10000", "100000", "1000000"})
+    int populationSize;
+
+    @Param({"1", "2", "4", "8"})
+    int threads;
+
+    @Param({"0", "1"})
+    int selectionType;
+
+    private GeneticAlgorithm algorithm;
+    private Population population;
+
+    @Setup
+    public void setup() {
+        RandomSource random = new RandomSource(1L);
+        float[][] genomes = Genomes.random(DISTINCT_CARS, random);
+        double[] fitness = Genomes.fitness(this.populationSize, random);
+        this.population = new Population(this.populationSize);
+        for (int i = 0; i < this.populationSize; i++) {
+            this.population.setGenome(i, genomes[i % DISTINCT_CARS]);
+            this.population.setFitness(i, fitness[i]);
+        }
+        this.algorithm = new GeneticAlgorithm(this.selectionType, 0.2, 0.5, random);
+        this.algorithm.setThreads(this.threads);
+    }
+
+    @TearDown
+    public void tearDown() {
+        this.algorithm.shutdown();
+    }
+
+    @Benchmark
+    public Population breed() {
+        int[] parents;
+        if (this.selectionType == GeneticAlgorithm.TOURNAMENT) {
+            parents = this.algorithm.tournamentSelection(this.population);
+        } else {
+            parents = this.algorithm.rouletteSelection(this.population);
+        }
+        this.algorithm.crossover(this.population, parents);
+        this.algorithm.mutation(this.population);
+        return this.population; //the generation is not swapped in, so every call breeds from the same parents
+    }
+
+}
@@ -0,0 +1,50 @@
+package sim;
+
+import org.jbox2d.dynamics.World;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CarBenchmark.java
+ * @description Measures building a car from a genome and destroying it again, in a world that already has a 300 tile
+ * ground like the one every car of a run is built in
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CarBenchmark {
+
+    private static final int GENOMES = 64; //cycled through so the benchmark does not build the same car every time
+
+    private World world;
+    private float[][] genomes;
+    private long seed = 1L;
+    private int next = 0;
+
+    @Setup
+    public void setup() {
+        Ground.maxSegments = 300;
+        RandomSource random = new RandomSource(this.seed);
+        this.world = new World(Evaluator.GRAVITY);
+        new Ground(this.world).createGround(random);
+        this.genomes = Genomes.random(GENOMES, random);
+    }
+
+    @Benchmark
+    public Car createAndKill() {
+        float[] genome = this.genomes[this.next];
+        this.next = (this.next + 1) % GENOMES;
+        Car car = new Car(genome, this.world, RandomSource.forGenome(genome));
+        car.kill();
+        return car;
+    }
+
+}
@@ -0,0 +1,88 @@
+package sim;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * ChainCheck.java
+ * @description Checks that a track built as one chain body scores cars like the same track built as separate tiles.
+ * The same random genomes are run on the same random track in both modes, for a few fixed tracks, and the check fails
+ * if a two-sample Kolmogorov-Smirnov test tells the two fitness distributions apart at the 5% level. Single cars can
+ * differ a lot between the modes, and the few cars that drive far move the mean, so the means are only reported. It
+ * runs with gradle check
+ *
+ * Usage: gradle chainCheck
+ *
+ */
+public class ChainCheck {
+
+    private static final long[] TRACK_SEEDS = {1, 2, 3};
+    private static final int CARS = 300; //the random genomes run on each track
+    private static final double KS_ALPHA_05 = 1.358; //the Kolmogorov-Smirnov coefficient c(alpha) for alpha = 0.05
+
+    public static void main(String[] args) {
+        Evaluator.prescreening = false; //a rejected genome scores the same in both modes, so every car is simulated
+        boolean passed = true;
+        for (long trackSeed : TRACK_SEEDS) {
+            ArrayList<float[]> track = Ground.randomTrack(new RandomSource(trackSeed));
+            float[] genes = Evolution.randomPopulation(CARS, new RandomSource(trackSeed + 1)).genes();
+            double[] tiles = evaluate(track, genes, false);
+            double[] chain = evaluate(track, genes, true);
+            double d = ksStatistic(tiles, chain);
+            double critical = KS_ALPHA_05 * Math.sqrt(2.0 / CARS);
+            System.out.printf("track %d: tiles mean %.3f median %.3f, chain mean %.3f median %.3f, D %.4f (critical %.4f)%n",
+                    trackSeed, mean(tiles), tiles[CARS / 2], mean(chain), chain[CARS / 2], d, critical);
+            passed &= d <= critical;
+        }
+        System.out.println(passed ? "Chain check passed" : "Chain check FAILED: the chain scores cars differently from the tiles");
+        System.exit(passed ? 0 : 1);
+    }
+
+    /**
+     * evaluate
+     * @param useChain whether to build the track as a chain
+     * @return the fitness of every car, sorted
+     */
+    private static double[] evaluate(ArrayList<float[]> track, float[] genes, boolean useChain) {
+        Ground.useChain = useChain;
+        Evaluator evaluator = new Evaluator(track);
+        double[] fitness = new double[CARS];
+        for (int i = 0; i < CARS; i++) {
+            fitness[i] = evaluator.screen(genes, i * Population.GENOME_LENGTH, 0);
+        }
+        Arrays.sort(fitness);
+        return fitness;
+    }
+
+    /**
+     * ksStatistic
+     * @param a a sorted sample
+     * @param b a sorted sample
+     * @return the largest distance between the empirical distribution functions of the samples
+     */
+    private static double ksStatistic(double[] a, double[] b) {
+        int i = 0;
+        int j = 0;
+        double d = 0;
+        while (i < a.length && j < b.length) {
+            double x = Math.min(a[i], b[j]);
+            while (i < a.length && a[i] <= x) {
+                i++;
+            }
+            while (j < b.length && b[j] <= x) {
+                j++;
+            }
+            d = Math.max(d, Math.abs((double) i / a.length - (double) j / b.length));
+        }
+        return d;
+    }
+
+    private static double mean(double[] values) {
+        double sum = 0;
+        for (double value : values) {
+            sum += value;
+        }
+        return sum / values.length;
+    }
+
+}
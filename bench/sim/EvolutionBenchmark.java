@@ -0,0 +1,467 @@
+package sim;
+
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Objects;
+import java.util.Properties;
+
+/**
+ * EvolutionBenchmark.java
+ * @description Runs a whole fixed seed evolution without a window and reports generations, cars and physics steps per
+ * second and the peak heap. The result is written as a properties file, and when a baseline result is given the run
+ * fails if any metric is worse than the baseline by more than the tolerance. Every option is written to the result
+ * under the name it is given with, and the settings have to match the baseline's for the results to be comparable.
+ *
+ * Usage: gradle evolutionBenchmark --args="--generations=20 --baseline=baseline.properties --tolerance=0.1"
+ *
+ * Settings:
+ *   --seed=1                the seed of the run
+ *   --trackSeed=seed        the seed the track of a generational run is drawn from, so runs of different seeds can
+ *                           share the evaluations an --store holds for the track
+ *   --streaming=false       drives the cars of a generational run on an endless StreamingGround track of --trackSeed,
+ *                           stopped by --maxSteps alone instead of a finish line
+ *   --batch=false           evaluates each thread's share of a generation in one world with a BatchEvaluator, which
+ *                           scores every car exactly like the default ParallelEvaluator
+ *   --generations=20        the generations timed, after --warmup=2 generations of a separate run of the same seed
+ *   --populationSize=20     the cars in each generation
+ *   --selectionType=0       GeneticAlgorithm.ROULETTE (0) or GeneticAlgorithm.TOURNAMENT (1)
+ *   --threads=1             the evaluator and breeding threads, not for --islands, which runs each island on a
+ *                           thread of its own
+ *   --cacheSize=10000       the genomes the FitnessCache remembers, or 0 to simulate every genome
+ *   --maxSteps=n            Car.maxSteps, reporting the cars each Car limit stopped
+ *   --progressWindow=n      Car.progressWindow
+ *   --prescreen=true        whether CarDefinition.prescreen rejects hopeless genomes, reporting the share rejected for
+ *                           each reason
+ *   --screenSteps=0         screens each generation with an n step run and only runs --screenFraction=0.25 of it to
+ *                           the end
+ *   --surrogate=0           only simulates the fraction f of each generation a SurrogateModel predicts fittest and an
+ *                           --exploration=0.1 slice of the rest, reporting the prediction error of each generation
+ *   --workers=host:port,... evaluates the generations on EvaluationWorker processes, started with
+ *                           gradle evaluationWorker --args="--port=7341"
+ *   --replacement=0|1       evaluates the same number of cars with a SteadyStateEvolution, replacing the worst car (0)
+ *                           or the loser of a tournament (1), and reports the worker utilization
+ *   --islands=k             runs the generations on every one of k IslandEvolution islands, migrating every
+ *                           --migration=5 generations
+ *
+ * Other options:
+ *   --timeout=60000         the milliseconds a worker may go without answering before its cars go to the other
+ *                           workers, or 0 to wait for ever
+ *   --store=path            looks up and records evaluations in an EvaluationStore, so a second run of the same seed
+ *                           measures the store instead of the physics
+ *   --out=build/results/evolution.properties  where the result is written
+ *   --baseline=path         the result to compare against, within --tolerance=0.1
+ *
+ */
+public class EvolutionBenchmark {
+
+    //the settings of the run, which have to match the baseline for the results to be comparable
+    private static final String[] SETTINGS = {"seed", "trackSeed", "streaming", "batch", "generations", "populationSize", "selectionType", "threads", "cacheSize", "replacement", "islands", "migration", "workers", "maxSteps", "progressWindow", "screenSteps", "screenFraction", "prescreen", "surrogate", "exploration"};
+    private static final String[] OTHER_OPTIONS = {"warmup", "timeout", "store", "out", "baseline", "tolerance"};
+    private static final String[] VERDICTS = {"viable", "noWheels", "degenerateChassis", "unbuildable"};
+    private static final double[] ISLAND_MUTATION_RATES = {0.2, 0.1, 0.3, 0.05};
+    private static final double[] ISLAND_MUTATION_EFFECTS = {0.5, 0.25, 1.0, 0.5};
+    private static final double MUTATION_RATE = 0.2;
+    private static final double MUTATION_EFFECT = 0.5;
+
+    public static void main(String[] args) throws IOException {
+        HashMap<String, String> options = parseOptions(args);
+        long seed = Long.parseLong(options.getOrDefault("seed", "1"));
+        int generations = Integer.parseInt(options.getOrDefault("generations", "20"));
+        int populationSize = Integer.parseInt(options.getOrDefault("populationSize", "20"));
+        int threads = Integer.parseInt(options.getOrDefault("threads", "1"));
+        int cacheSize = Integer.parseInt(options.getOrDefault("cacheSize", "10000"));
+        Car.maxSteps = Integer.parseInt(options.getOrDefault("maxSteps", Integer.toString(Car.maxSteps)));
+        Car.progressWindow = Integer.parseInt(options.getOrDefault("progressWindow", Integer.toString(Car.progressWindow)));
+        Evaluator.prescreening = Boolean.parseBoolean(options.getOrDefault("prescreen", "true"));
+        Ground.streaming = Boolean.parseBoolean(options.getOrDefault("streaming", "false"));
+        if (Ground.streaming && (options.containsKey("islands") || options.containsKey("replacement"))) {
+            throw new IllegalArgumentException("--streaming only applies to generational runs");
+        }
+        Evolution.batching = Boolean.parseBoolean(options.getOrDefault("batch", "false"));
+        if (Evolution.batching && (options.containsKey("islands") || options.containsKey("replacement") || options.containsKey("workers"))) {
+            throw new IllegalArgumentException("--batch only applies to generational runs in this process");
+        }
+        if (options.containsKey("threads") && options.containsKey("islands")) {
+            throw new IllegalArgumentException("--threads does not apply to --islands, which runs each island on a thread of its own");
+        }
+        Path out = Paths.get(options.getOrDefault("out", "build/results/evolution.properties"));
+        double tolerance = Double.parseDouble(options.getOrDefault("tolerance", "0.1"));
+
+        //warm up the JIT on a separate run of the same seed, without the store so it cannot fill the store for the real run
+        Evolution warm = newEvolution(options, null);
+        for (int i = 0, warmup = Integer.parseInt(options.getOrDefault("warmup", "2")); i < warmup; i++) {
+            warm.step();
+        }
+        warm.shutdown();
+
+        System.gc();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            pool.resetPeakUsage();
+        }
+        Properties result = new Properties();
+        result.setProperty("seed", Long.toString(seed));
+        result.setProperty("trackSeed", Long.toString(Long.parseLong(options.getOrDefault("trackSeed", Long.toString(seed)))));
+        result.setProperty("streaming", Boolean.toString(Ground.streaming));
+        result.setProperty("batch", Boolean.toString(Evolution.batching));
+        result.setProperty("generations", Integer.toString(generations));
+        result.setProperty("populationSize", Integer.toString(populationSize));
+        result.setProperty("selectionType", Integer.toString(Integer.parseInt(options.getOrDefault("selectionType", "0"))));
+        if (!options.containsKey("islands")) {
+            result.setProperty("threads", Integer.toString(threads));
+        }
+        result.setProperty("cacheSize", Integer.toString(cacheSize));
+        result.setProperty("maxSteps", Integer.toString(Car.maxSteps));
+        result.setProperty("progressWindow", Integer.toString(Car.progressWindow));
+        result.setProperty("prescreen", Boolean.toString(Evaluator.prescreening));
+        ArrayList<String> report = new ArrayList<>(); //the lines each mode prints about itself
+
+        EvaluationStore store = options.containsKey("store") ? EvaluationStore.open(Paths.get(options.get("store"))) : null;
+        Counters counters = new Counters(); //the counters count over the whole process, so only the difference belongs to the run
+        Run run;
+        if (Integer.parseInt(options.getOrDefault("islands", "0")) > 0) {
+            run = runIslands(options, store, result, report);
+        } else if (Integer.parseInt(options.getOrDefault("replacement", "-1")) >= 0) {
+            run = runSteadyState(options, store, result, report);
+        } else {
+            run = runGenerations(options, store, result, report);
+        }
+        counters.finish();
+        if (store != null) {
+            store.close();
+        }
+        long peakHeap = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peakHeap += pool.getPeakUsage().getUsed();
+            }
+        }
+
+        if (run.cache != null) {
+            result.setProperty("cacheHits", Long.toString(run.cache.getHits()));
+            result.setProperty("cacheMisses", Long.toString(run.cache.getMisses()));
+            report.add(String.format("fitness cache: %d hits, %d misses", run.cache.getHits(), run.cache.getMisses()));
+        }
+        result.setProperty("steps", Long.toString(run.steps));
+        counters.write(result);
+        result.setProperty("bestFitness", Float.toString(run.bestFitness));
+        result.setProperty("seconds", Double.toString(run.seconds));
+        result.setProperty("generationsPerSecond", Double.toString(generations / run.seconds));
+        result.setProperty("carsPerSecond", Double.toString(run.carsEvaluated / run.seconds));
+        result.setProperty("stepsPerSecond", Double.toString(run.steps / run.seconds));
+        result.setProperty("peakHeapBytes", Long.toString(peakHeap));
+        if (out.getParent() != null) {
+            Files.createDirectories(out.getParent());
+        }
+        try (OutputStream stream = new FileOutputStream(out.toFile())) {
+            result.store(stream, "evolution benchmark");
+        }
+
+        System.out.printf("%d generations of %d cars in %.2fs (%d steps, best fitness %.2f)%n", generations, populationSize, run.seconds, run.steps, run.bestFitness);
+        System.out.printf("generations/s %.3f, cars/s %.1f, steps/s %.0f, peak heap %d MB%n", generations / run.seconds, run.carsEvaluated / run.seconds, run.steps / run.seconds, peakHeap >> 20);
+        counters.print();
+        for (String line : report) {
+            System.out.println(line);
+        }
+        System.out.println("Result written to " + out);
+
+        if (options.containsKey("baseline")) {
+            Properties baseline = new Properties();
+            try (InputStream stream = new FileInputStream(options.get("baseline"))) {
+                baseline.load(stream);
+            }
+            System.exit(compare(result, baseline, tolerance) ? 0 : 1);
+        }
+    }
+
+    /**
+     * parseOptions
+     * @param args the command line arguments, each --name=value
+     * @return the value of each option by name
+     * @throws IllegalArgumentException if an argument is not an option or not one of SETTINGS or OTHER_OPTIONS
+     */
+    private static HashMap<String, String> parseOptions(String[] args) {
+        List<String> known = new ArrayList<>(Arrays.asList(SETTINGS));
+        known.addAll(Arrays.asList(OTHER_OPTIONS));
+        HashMap<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value but got " + arg);
+            }
+            String name = arg.substring(2, arg.indexOf('='));
+            if (!known.contains(name)) {
+                throw new IllegalArgumentException("Unknown option --" + name + ", expected one of " + known);
+            }
+            options.put(name, arg.substring(arg.indexOf('=') + 1));
+        }
+        return options;
+    }
+
+    /**
+     * newEvolution
+     * @description Creates the Evolution a generational run times, with screening and the surrogate model set up
+     * @param options the options of the run
+     * @param store the evaluation store, or null to not use one
+     * @return the evolution
+     */
+    private static Evolution newEvolution(HashMap<String, String> options, EvaluationStore store) {
+        ArrayList<InetSocketAddress> workers = null; //null evaluates on threads of this process
+        if (options.containsKey("workers")) {
+            workers = new ArrayList<>();
+            for (String worker : options.get("workers").split(",")) {
+                int colon = worker.lastIndexOf(':');
+                workers.add(new InetSocketAddress(worker.substring(0, colon), Integer.parseInt(worker.substring(colon + 1))));
+            }
+        }
+        String seed = options.getOrDefault("seed", "1");
+        Evolution evolution = new Evolution(Long.parseLong(seed), Long.parseLong(options.getOrDefault("trackSeed", seed)),
+                Integer.parseInt(options.getOrDefault("populationSize", "20")),
+                Integer.parseInt(options.getOrDefault("selectionType", "0")), MUTATION_RATE, MUTATION_EFFECT,
+                Integer.parseInt(options.getOrDefault("threads", "1")),
+                Integer.parseInt(options.getOrDefault("cacheSize", "10000")), store, workers);
+        if (workers != null) {
+            evolution.setTimeout(Integer.parseInt(options.getOrDefault("timeout", Integer.toString(DistributedEvaluator.DEFAULT_TIMEOUT))));
+        }
+        int screenSteps = Integer.parseInt(options.getOrDefault("screenSteps", "0")); //0 runs every car to the end
+        if (screenSteps > 0) {
+            evolution.setScreening(screenSteps, Double.parseDouble(options.getOrDefault("screenFraction", "0.25")));
+        }
+        double surrogate = Double.parseDouble(options.getOrDefault("surrogate", "0")); //0 simulates every car
+        if (surrogate > 0) {
+            evolution.setSurrogate(surrogate, Double.parseDouble(options.getOrDefault("exploration", "0.1")));
+        }
+        return evolution;
+    }
+
+    /**
+     * runGenerations
+     * @description Times the generations of an Evolution, on threads of this process or on worker processes
+     */
+    private static Run runGenerations(HashMap<String, String> options, EvaluationStore store, Properties result, ArrayList<String> report) {
+        int generations = Integer.parseInt(options.getOrDefault("generations", "20"));
+        Evolution evolution = newEvolution(options, store);
+        long start = System.nanoTime();
+        for (int i = 0; i < generations; i++) {
+            evolution.step();
+        }
+        evolution.shutdown();
+        Run run = new Run(start, evolution.getCarsEvaluated(), evolution.getSteps(), evolution.getBestFitness(), evolution.getCache());
+
+        int screenSteps = Integer.parseInt(options.getOrDefault("screenSteps", "0"));
+        if (screenSteps > 0) {
+            result.setProperty("screenSteps", Integer.toString(screenSteps));
+            result.setProperty("screenFraction", Double.toString(Double.parseDouble(options.getOrDefault("screenFraction", "0.25"))));
+            result.setProperty("screenedOut", Long.toString(evolution.getScreenedOut()));
+            report.add(String.format("screened with %d steps, %d cars kept their screening fitness", screenSteps, evolution.getScreenedOut()));
+        }
+        if (Double.parseDouble(options.getOrDefault("surrogate", "0")) > 0) {
+            ArrayList<Double> predictionErrors = evolution.getPredictionErrors();
+            double meanError = 0;
+            for (double error : predictionErrors) {
+                meanError += error / predictionErrors.size();
+            }
+            result.setProperty("surrogate", Double.toString(Double.parseDouble(options.get("surrogate"))));
+            result.setProperty("exploration", Double.toString(Double.parseDouble(options.getOrDefault("exploration", "0.1"))));
+            result.setProperty("carsPredicted", Long.toString(evolution.getCarsPredicted()));
+            result.setProperty("predictionError", Double.toString(meanError));
+            report.add(String.format("surrogate: %d cars simulated, %d predicted", run.carsEvaluated, evolution.getCarsPredicted()));
+            for (int i = 0; i < predictionErrors.size(); i++) {
+                report.add(String.format("  generation %d mean absolute prediction error %.2f", generations - predictionErrors.size() + i, predictionErrors.get(i)));
+            }
+        }
+        if (options.containsKey("workers")) {
+            int workers = options.get("workers").split(",").length;
+            result.setProperty("workers", Integer.toString(workers));
+            report.add(String.format("evaluated on %d worker processes", workers));
+        }
+        return run;
+    }
+
+    /**
+     * runSteadyState
+     * @description Times a SteadyStateEvolution evaluating as many cars as the generations hold, bred one at a time
+     */
+    private static Run runSteadyState(HashMap<String, String> options, EvaluationStore store, Properties result, ArrayList<String> report) {
+        int replacement = Integer.parseInt(options.get("replacement"));
+        int populationSize = Integer.parseInt(options.getOrDefault("populationSize", "20"));
+        SteadyStateEvolution evolution = new SteadyStateEvolution(Long.parseLong(options.getOrDefault("seed", "1")),
+                populationSize, replacement, MUTATION_RATE, MUTATION_EFFECT,
+                Integer.parseInt(options.getOrDefault("threads", "1")),
+                Integer.parseInt(options.getOrDefault("cacheSize", "10000")), store);
+        long start = System.nanoTime();
+        evolution.run((long) Integer.parseInt(options.getOrDefault("generations", "20")) * populationSize);
+        Run run = new Run(start, evolution.getCarsEvaluated(), evolution.getSteps(), evolution.getBestFitness(), evolution.getCache());
+        result.setProperty("replacement", Integer.toString(replacement));
+        result.setProperty("utilization", Double.toString(evolution.getUtilization()));
+        report.add(String.format("steady state, worker utilization %.1f%%", evolution.getUtilization() * 100));
+        return run;
+    }
+
+    /**
+     * runIslands
+     * @description Times every island of an IslandEvolution running the generations, with the selection method and
+     * mutation cycling between islands
+     */
+    private static Run runIslands(HashMap<String, String> options, EvaluationStore store, Properties result, ArrayList<String> report) {
+        int islands = Integer.parseInt(options.get("islands"));
+        int migration = Integer.parseInt(options.getOrDefault("migration", "5"));
+        int populationSize = Integer.parseInt(options.getOrDefault("populationSize", "20"));
+        int selectionType = Integer.parseInt(options.getOrDefault("selectionType", "0"));
+        int[] selectionTypes = new int[islands];
+        double[] mutationRates = new double[islands];
+        double[] mutationEffects = new double[islands];
+        for (int i = 0; i < islands; i++) {
+            selectionTypes[i] = (selectionType + i) % 2;
+            mutationRates[i] = ISLAND_MUTATION_RATES[i % ISLAND_MUTATION_RATES.length];
+            mutationEffects[i] = ISLAND_MUTATION_EFFECTS[i % ISLAND_MUTATION_EFFECTS.length];
+        }
+        IslandEvolution evolution = new IslandEvolution(Long.parseLong(options.getOrDefault("seed", "1")), populationSize,
+                selectionTypes, mutationRates, mutationEffects, migration, Math.max(1, populationSize / 10),
+                Integer.parseInt(options.getOrDefault("cacheSize", "10000")), store);
+        long start = System.nanoTime();
+        evolution.run(Integer.parseInt(options.getOrDefault("generations", "20")));
+        Run run = new Run(start, evolution.getCarsEvaluated(), evolution.getSteps(), evolution.getBestFitness(), evolution.getCache());
+        result.setProperty("islands", Integer.toString(islands));
+        result.setProperty("migration", Integer.toString(migration));
+        result.setProperty("diversity", Double.toString(evolution.getDiversity()));
+        result.setProperty("migrations", Long.toString(evolution.getMigrations()));
+        report.add(String.format("%d islands migrating every %d generations, %d cars migrated, gene diversity %.4f", islands, migration, evolution.getMigrations(), evolution.getDiversity()));
+        return run;
+    }
+
+    /**
+     * compare
+     * @description Prints each metric against the baseline
+     * @param result the result of this run
+     * @param baseline the stored baseline result
+     * @param tolerance the fraction a metric may be worse than the baseline by
+     * @return whether no metric regressed by more than the tolerance
+     */
+    private static boolean compare(Properties result, Properties baseline, double tolerance) {
+        for (String setting : SETTINGS) {
+            if (!Objects.equals(result.getProperty(setting), baseline.getProperty(setting))) {
+                System.out.println("Baseline was run with " + setting + "=" + baseline.getProperty(setting) + ", not " + result.getProperty(setting));
+                return false;
+            }
+        }
+        if (!result.getProperty("steps").equals(baseline.getProperty("steps"))) {
+            //the same seed evolved different cars, so only the per step throughput is directly comparable
+            System.out.println("Warning: the evolution differs from the baseline (" + result.getProperty("steps") + " steps, baseline " + baseline.getProperty("steps") + ")");
+        }
+        boolean passed = true;
+        passed &= check("generationsPerSecond", result, baseline, tolerance, true);
+        passed &= check("carsPerSecond", result, baseline, tolerance, true);
+        passed &= check("stepsPerSecond", result, baseline, tolerance, true);
+        passed &= check("peakHeapBytes", result, baseline, tolerance, false);
+        System.out.println(passed ? "No regression against the baseline" : "Regression against the baseline");
+        return passed;
+    }
+
+    private static boolean check(String metric, Properties result, Properties baseline, double tolerance, boolean higherIsBetter) {
+        double value = Double.parseDouble(result.getProperty(metric));
+        double reference = Double.parseDouble(baseline.getProperty(metric));
+        double change = (value - reference) / reference;
+        boolean passed = higherIsBetter ? change >= -tolerance : change <= tolerance;
+        System.out.printf("%-22s %16.3f  baseline %16.3f  %+6.1f%%  %s%n", metric, value, reference, change * 100, passed ? "ok" : "REGRESSED");
+        return passed;
+    }
+
+    /**
+     * Run
+     * @description The metrics every run mode reports
+     */
+    private static class Run {
+
+        final double seconds;
+        final long carsEvaluated;
+        final long steps;
+        final float bestFitness;
+        final FitnessCache cache; //null when caching is off
+
+        /**
+         * @param start the System.nanoTime the timed part of the run started at, which it ends at now
+         */
+        Run(long start, long carsEvaluated, long steps, float bestFitness, FitnessCache cache) {
+            this.seconds = (System.nanoTime() - start) / 1e9;
+            this.carsEvaluated = carsEvaluated;
+            this.steps = steps;
+            this.bestFitness = bestFitness;
+            this.cache = cache;
+        }
+
+    }
+
+    /**
+     * Counters
+     * @description The cars the Car limits stopped and the genomes prescreening rejected during a run, which Car and
+     * Evaluator count over the whole process
+     */
+    private static class Counters {
+
+        private long stepLimited = Car.getStepLimited();
+        private long progressLimited = Car.getProgressLimited();
+        private long stepsSaved = Car.getStepsSaved();
+        private long prescreened = Evaluator.getPrescreened();
+        private long[] rejected = new long[CarDefinition.VERDICTS];
+        private long rejections = 0;
+
+        Counters() {
+            for (int v = 1; v < this.rejected.length; v++) {
+                this.rejected[v] = Evaluator.getRejected(v);
+            }
+        }
+
+        /**
+         * finish
+         * @description Takes the counts since the counters were created
+         */
+        void finish() {
+            this.stepLimited = Car.getStepLimited() - this.stepLimited;
+            this.progressLimited = Car.getProgressLimited() - this.progressLimited;
+            this.stepsSaved = Car.getStepsSaved() - this.stepsSaved;
+            this.prescreened = Evaluator.getPrescreened() - this.prescreened;
+            for (int v = 1; v < this.rejected.length; v++) {
+                this.rejected[v] = Evaluator.getRejected(v) - this.rejected[v];
+                this.rejections += this.rejected[v];
+            }
+        }
+
+        void write(Properties result) {
+            result.setProperty("stepLimited", Long.toString(this.stepLimited));
+            result.setProperty("progressLimited", Long.toString(this.progressLimited));
+            result.setProperty("stepsSaved", Long.toString(this.stepsSaved));
+            if (Evaluator.prescreening) {
+                result.setProperty("prescreened", Long.toString(this.prescreened));
+                for (int v = 1; v < this.rejected.length; v++) {
+                    result.setProperty(VERDICTS[v], Long.toString(this.rejected[v]));
+                }
+            }
+        }
+
+        void print() {
+            System.out.printf("%d cars stopped at %d steps, %d stopped after %d steps without progress, saving %d steps%n", this.stepLimited, Car.maxSteps, this.progressLimited, Car.progressWindow, this.stepsSaved);
+            if (Evaluator.prescreening) {
+                System.out.printf("prescreening rejected %d of %d genomes (%.1f%%):", this.rejections, this.prescreened, this.prescreened == 0 ? 0 : 100.0 * this.rejections / this.prescreened);
+                for (int v = 1; v < this.rejected.length; v++) {
+                    System.out.printf(" %s %d", VERDICTS[v], this.rejected[v]);
+                }
+                System.out.println();
+            }
+        }
+
+    }
+
+}
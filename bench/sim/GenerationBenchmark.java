@@ -0,0 +1,66 @@
+package sim;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * GenerationBenchmark.java
+ * @description Measures evaluating a first generation of random cars on one thread, car by car with a
+ * ParallelEvaluator or all together in one world with a BatchEvaluator. There is no cache, so every generation is
+ * simulated in full
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class GenerationBenchmark {
+
+    @Param({"false", "true"})
+    boolean batch;
+
+    @Param({"20", "100"})
+    int populationSize;
+
+    private GenerationEvaluator evaluator;
+    private float[] genes;
+    private int[] cars;
+    private float[] fitness;
+
+    @Setup
+    public void setup() {
+        Ground.maxSegments = 300;
+        Ground.useChain = false;
+        Ground.streaming = false;
+        RandomSource random = new RandomSource(1L);
+        ArrayList<float[]> track = Ground.randomTrack(random);
+        this.evaluator = this.batch ? new BatchEvaluator(track, 1, null, null) : new ParallelEvaluator(track, 1, null, null);
+        this.genes = Evolution.randomPopulation(this.populationSize, random).genes();
+        this.cars = new int[this.populationSize];
+        for (int i = 0; i < this.cars.length; i++) {
+            this.cars[i] = i;
+        }
+        this.fitness = new float[this.populationSize];
+    }
+
+    @Benchmark
+    public float[] generation() {
+        this.evaluator.evaluate(this.genes, this.cars, this.cars.length, this.fitness);
+        return this.fitness;
+    }
+
+    @TearDown
+    public void tearDown() {
+        this.evaluator.shutdown();
+    }
+
+}
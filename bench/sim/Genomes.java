@@ -0,0 +1,35 @@
+package sim;
+
+/**
+ * Genomes.java
+ * @description Builds the random genomes and fitness scores the benchmarks run on, the same way the first generation
+ * of a run is created
+ *
+ */
+class Genomes {
+
+    /**
+     * random
+     * @param count the number of genomes
+     * @param random the random source to draw the cars from
+     * @return the genomes of count random cars
+     */
+    static float[][] random(int count, RandomSource random) {
+        return Evolution.randomPopulation(count, random).toArrays();
+    }
+
+    /**
+     * fitness
+     * @param count the number of fitness scores
+     * @param random the random source to draw the scores from
+     * @return count fitness scores spread like the distances of a first generation
+     */
+    static double[] fitness(int count, RandomSource random) {
+        double[] fitness = new double[count];
+        for (int i = 0; i < count; i++) {
+            fitness[i] = random.nextFloat(0.5F, 60F);
+        }
+        return fitness;
+    }
+
+}
@@ -0,0 +1,43 @@
+package sim;
+
+import org.jbox2d.dynamics.World;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * GroundBenchmark.java
+ * @description Measures generating a random 300 tile ground into a new world, for both the tile and the chain ground
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class GroundBenchmark {
+
+    @Param({"false", "true"})
+    boolean chain;
+
+    private long seed = 1L;
+
+    @Setup
+    public void setup() {
+        Ground.maxSegments = 300;
+        Ground.useChain = this.chain;
+    }
+
+    @Benchmark
+    public World createGround() {
+        World world = new World(Evaluator.GRAVITY);
+        new Ground(world).createGround(new RandomSource(this.seed++));
+        return world;
+    }
+
+}
@@ -0,0 +1,109 @@
+package sim;
+
+import java.util.Arrays;
+
+/**
+ * LegacySelection.java
+ * @description The selection operators GeneticAlgorithm used before the current roulette and k-tournament,
+ * kept so SelectionBenchmark can compare the two. The roulette scans the whole wheel on every draw and both reject
+ * cars already selected until enough distinct parents are found
+ *
+ */
+class LegacySelection {
+
+    private RandomSource random;
+    private double[] rouletteWheel = new double[0];
+    private boolean[] selected = new boolean[0];
+    private int[] parents = new int[0];
+
+    /**
+     * @param random the random source to draw from
+     */
+    LegacySelection(RandomSource random) {
+        this.random = random;
+    }
+
+    int[] rouletteSelection(Population population){
+        int populationSize = population.size();
+        double[] distance = population.fitness();
+        ensureCapacity(populationSize);
+
+        //Find sum of all fitness scores
+        double sumOfFitnessScores = 0;
+        for (int i = 0; i < populationSize; i++) {
+            sumOfFitnessScores = distance[i] + sumOfFitnessScores;
+        }
+
+        //Find each car's probability of selection
+        rouletteWheel[0] = (distance[0] / sumOfFitnessScores) * 100;
+        for (int i = 1; i < populationSize; i++){
+            rouletteWheel[i] = (distance[i] / sumOfFitnessScores) * 100 + rouletteWheel[i-1];
+        }
+
+        //selecting parents
+        double selectionNum;
+        int count = 0;
+        Arrays.fill(selected, 0, populationSize, false);
+        do{
+            selectionNum = (random.nextDouble()*101);
+
+            if ((selectionNum >= 0) && (selectionNum <= rouletteWheel[0])){
+                if (!selected[0]) {
+                    parents[count++] = 0;
+                    selected[0] = true;
+                }
+            }
+            for (int j = 1; j < populationSize; j++){
+                if ((selectionNum > rouletteWheel[j-1]) && (selectionNum <= rouletteWheel[j])){
+                    if (!selected[j]) {
+                        parents[count++] = j;
+                        selected[j] = true;
+                    }
+                }
+            }
+        }while (count < populationSize/2);
+
+        return parents;
+    }
+
+    int[] tournamentSelection(Population population){
+        int populationSize = population.size();
+        double[] distance = population.fitness();
+        ensureCapacity(populationSize);
+        int count = 0;
+        Arrays.fill(selected, 0, populationSize, false);
+
+        do{
+            int carA = random.nextInt(populationSize);
+            int carB = random.nextInt(populationSize);
+
+            if (carA != carB){
+                if ((!selected[carA])&&(!selected[carB])){
+                    if (distance[carA] > distance[carB]){
+                        parents[count++] = carA;
+                        selected[carA] = true;
+                        selected[carB] = true;
+                    }else if (distance[carA] < distance[carB]){
+                        parents[count++] = carB;
+                        selected[carA] = true;
+                        selected[carB] = true;
+                    }else{
+                        selected[carA] = false;
+                        selected[carB] = false;
+                    }
+                }
+            }
+        }while(count < populationSize/2);
+
+        return parents;
+    }
+
+    private void ensureCapacity(int populationSize) {
+        if (this.selected.length < populationSize) {
+            this.rouletteWheel = new double[populationSize];
+            this.selected = new boolean[populationSize];
+            this.parents = new int[populationSize];
+        }
+    }
+
+}
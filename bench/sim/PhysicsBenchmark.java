@@ -0,0 +1,56 @@
+package sim;
+
+import org.jbox2d.dynamics.World;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * PhysicsBenchmark.java
+ * @description Measures a single world.step with one car driving on a 300 tile ground, for both the tile and the
+ * chain ground. A car that dies is replaced by a copy of itself so every step simulates a moving car
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PhysicsBenchmark {
+
+    @Param({"false", "true"})
+    boolean chain;
+
+    private World world;
+    private Car car;
+    private float[] genome;
+    private long seed = 1L;
+
+    @Setup
+    public void setup() {
+        Ground.maxSegments = 300;
+        Ground.useChain = this.chain;
+        RandomSource random = new RandomSource(this.seed);
+        this.world = new World(Evaluator.GRAVITY);
+        new Ground(this.world).createGround(random);
+        this.car = new Car(CarDefinition.createRandomCar(random), this.world);
+        this.genome = this.car.getGenome();
+    }
+
+    @Benchmark
+    public boolean step() {
+        this.world.step(Evaluator.TIME_STEP, Evaluator.VELOCITY_ITERATIONS, Evaluator.POSITION_ITERATIONS);
+        boolean dead = this.car.checkDeath();
+        if (dead) {
+            this.car.kill();
+            this.car = new Car(this.genome, this.world, RandomSource.forGenome(this.genome));
+        }
+        return dead;
+    }
+
+}
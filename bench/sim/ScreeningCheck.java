@@ -0,0 +1,72 @@
+package sim;
+
+import java.util.ArrayList;
+
+/**
+ * ScreeningCheck.java
+ * @description Checks that screening a generation counts every genome once. The same random generation is evaluated
+ * with and without screening, each with a fresh cache, and the check fails if the prescreened and rejected counts or
+ * the cache misses of the two differ: the cars run again to the end must not be prescreened or looked up a second
+ * time. It runs with gradle check
+ *
+ * Usage: gradle screeningCheck
+ *
+ */
+public class ScreeningCheck {
+
+    private static final long SEED = 4;
+    private static final int CARS = 200;
+    private static final int SCREEN_STEPS = 60;
+    private static final double SCREEN_FRACTION = 0.25;
+
+    public static void main(String[] args) {
+        Evaluator.prescreening = true;
+        RandomSource random = new RandomSource(SEED);
+        ArrayList<float[]> track = Ground.randomTrack(random);
+        float[] genes = Evolution.randomPopulation(CARS, random).genes();
+        long[] plain = evaluate(track, genes, 0);
+        long[] screened = evaluate(track, genes, SCREEN_STEPS);
+
+        String[] names = {"prescreened", "noWheels", "degenerateChassis", "unbuildable", "cacheMisses"};
+        boolean passed = true;
+        for (int i = 0; i < names.length; i++) {
+            System.out.printf("%-18s unscreened %5d  screened %5d%n", names[i], plain[i], screened[i]);
+            passed &= plain[i] == screened[i];
+        }
+        System.out.println(passed ? "Screening check passed" : "Screening check FAILED: screening counted genomes twice");
+        System.exit(passed ? 0 : 1);
+    }
+
+    /**
+     * evaluate
+     * @param screenSteps the screening steps, or 0 to run every car to the end
+     * @return the genomes prescreened, rejected for each verdict other than VIABLE, and missed by the cache
+     */
+    private static long[] evaluate(ArrayList<float[]> track, float[] genes, int screenSteps) {
+        long prescreened = Evaluator.getPrescreened();
+        long[] rejected = new long[CarDefinition.VERDICTS];
+        for (int v = 1; v < CarDefinition.VERDICTS; v++) {
+            rejected[v] = Evaluator.getRejected(v);
+        }
+        FitnessCache cache = new FitnessCache(CARS);
+        ParallelEvaluator evaluator = new ParallelEvaluator(track, 1, cache, null);
+        if (screenSteps > 0) {
+            evaluator.setScreening(screenSteps, SCREEN_FRACTION);
+        }
+        int[] cars = new int[CARS];
+        for (int i = 0; i < CARS; i++) {
+            cars[i] = i;
+        }
+        evaluator.evaluate(genes, cars, CARS, new float[CARS]);
+        evaluator.shutdown();
+
+        long[] counts = new long[CarDefinition.VERDICTS + 1];
+        counts[0] = Evaluator.getPrescreened() - prescreened;
+        for (int v = 1; v < CarDefinition.VERDICTS; v++) {
+            counts[v] = Evaluator.getRejected(v) - rejected[v];
+        }
+        counts[CarDefinition.VERDICTS] = cache.getMisses();
+        return counts;
+    }
+
+}
@@ -0,0 +1,85 @@
+package sim;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SelectionBenchmark.java
+ * @description Measures the operators of the genetic algorithm over a whole generation: each selection method next to
+ * the LegacySelection it replaced, and crossover and mutation on the parents a selection picked. The legacy roulette
+ * scans the wheel on every draw, so at the largest populations it takes minutes per operation
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@Fork(1)
+public class SelectionBenchmark {
+
+    @Param({"20", "100", "1000", "10000", "100000"})
+    int populationSize;
+
+    private GeneticAlgorithm algorithm;
+    private LegacySelection legacy;
+    private Population population;
+    private int[] parents;
+
+    @Setup
+    public void setup() {
+        RandomSource random = new RandomSource(1L);
+        this.algorithm = new GeneticAlgorithm(GeneticAlgorithm.ROULETTE, 0.2, 0.5, random);
+        this.legacy = new LegacySelection(random);
+        this.population = Evolution.randomPopulation(this.populationSize, random);
+        double[] fitness = Genomes.fitness(this.populationSize, random);
+        for (int i = 0; i < this.populationSize; i++) {
+            this.population.setFitness(i, fitness[i]);
+        }
+        this.parents = this.algorithm.tournamentSelection(this.population).clone();
+    }
+
+    @Benchmark
+    public int[] rouletteSelection() {
+        return this.algorithm.rouletteSelection(this.population);
+    }
+
+    @Benchmark
+    public int[] tournamentSelection() {
+        return this.algorithm.tournamentSelection(this.population);
+    }
+
+    @Benchmark
+    public int[] legacyRouletteSelection() {
+        return this.legacy.rouletteSelection(this.population);
+    }
+
+    @Benchmark
+    public int[] legacyTournamentSelection() {
+        return this.legacy.tournamentSelection(this.population);
+    }
+
+    @Benchmark
+    public Population crossover() {
+        this.algorithm.crossover(this.population, this.parents);
+        return this.population;
+    }
+
+    @Benchmark
+    public Population mutation() {
+        this.algorithm.mutation(this.population);
+        return this.population;
+    }
+
+}
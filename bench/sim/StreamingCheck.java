@@ -0,0 +1,87 @@
+package sim;
+
+import org.jbox2d.dynamics.World;
+
+/**
+ * StreamingCheck.java
+ * @description Checks that a StreamingGround keeps the number of live bodies bounded however far the cars drive. A car
+ * is swept along ten times Ground.maxSegments, well past where a track of tiles ends, updating the ground as Evaluator
+ * does, and the check fails if the ground stops short of the car or holds more bodies on the second half of the drive
+ * than on the first. Then a batch of cars is swept at speeds from the single car's down to almost stalled, updating the
+ * ground as BatchEvaluator does, and the check fails if the ground stops short of the leader or holds more chunks than
+ * one car's window for each car, however far the cars spread apart. It runs with gradle check
+ *
+ * Usage: gradle streamingCheck
+ *
+ */
+public class StreamingCheck {
+
+    private static final long TRACK_SEED = 1;
+    private static final int LAPS = 10; //how many Ground.maxSegments the car drives
+    private static final float STEP = 0.25f; //how far the car moves between updates, about a fast car's speed
+    private static final int CARS = 10; //the cars of the batch
+
+    public static void main(String[] args) {
+        World world = new World(Evaluator.GRAVITY);
+        StreamingGround ground = new StreamingGround(world, TRACK_SEED);
+        float end = (float) LAPS * Ground.maxSegments;
+        int firstHalf = 0; //the most bodies live on each half of the drive
+        int secondHalf = 0;
+        int chunks = 0;
+        for (float x = 0; x < end; x += STEP) {
+            ground.update(x);
+            if (x < end / 2) {
+                firstHalf = Math.max(firstHalf, world.getBodyCount());
+            } else {
+                secondHalf = Math.max(secondHalf, world.getBodyCount());
+            }
+            chunks = Math.max(chunks, ground.getChunkCount());
+        }
+        float reached = ground.getEnd();
+        ground.destroy();
+
+        System.out.printf("drove to %.0f, the ground reached %.0f, at most %d chunks live%n", end, reached, chunks);
+        System.out.printf("at most %d bodies on the first half of the drive and %d on the second%n", firstHalf, secondHalf);
+        boolean passed = true;
+        if (reached < end) {
+            System.out.println("The ground stopped short of the car");
+            passed = false;
+        }
+        if (secondHalf > firstHalf) {
+            System.out.println("The body count grew with the distance driven");
+            passed = false;
+        }
+
+        //the slowest car of the batch barely moves, so the batch spreads over the whole drive
+        float[] positions = new float[CARS];
+        float[] speeds = new float[CARS];
+        for (int i = 0; i < CARS; i++) {
+            speeds[i] = STEP * (i == 0 ? 0.001f : (float) i / (CARS - 1));
+        }
+        int batchChunks = 0;
+        float batchReached = Float.MAX_VALUE;
+        while (positions[CARS - 1] < end) {
+            ground.update(positions, CARS);
+            batchChunks = Math.max(batchChunks, ground.getChunkCount());
+            batchReached = Math.min(batchReached, ground.getEnd() - positions[CARS - 1]);
+            for (int i = 0; i < CARS; i++) {
+                positions[i] += speeds[i];
+            }
+        }
+        ground.destroy();
+
+        System.out.printf("%d cars spread from %.0f to %.0f, at most %d chunks live (%d per car)%n",
+                CARS, positions[0], positions[CARS - 1], batchChunks, chunks);
+        if (batchReached < 0) {
+            System.out.println("The ground stopped short of the leader of the batch");
+            passed = false;
+        }
+        if (batchChunks > CARS * chunks) {
+            System.out.println("The chunk count grew with the spread of the batch");
+            passed = false;
+        }
+        System.out.println(passed ? "Streaming check passed" : "Streaming check FAILED");
+        System.exit(passed ? 0 : 1);
+    }
+
+}
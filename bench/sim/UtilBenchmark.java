@@ -0,0 +1,53 @@
+package sim;
+
+import org.jbox2d.common.Vec2;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * UtilBenchmark.java
+ * @description Measures the conversions between the polar genome and the rectangular chassis vertices
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class UtilBenchmark {
+
+    private static final int POINTS = 1024;
+
+    private float[] magnitudes = new float[POINTS];
+    private float[] angles = new float[POINTS];
+    private Vec2[] points = new Vec2[POINTS];
+    private int next = 0;
+
+    @Setup
+    public void setup() {
+        RandomSource random = new RandomSource(1L);
+        for (int i = 0; i < POINTS; i++) {
+            this.magnitudes[i] = random.nextFloat(0.1F, 1.0F);
+            this.angles[i] = random.nextFloat(0F, (float) (Math.PI * 2));
+            this.points[i] = Util.polarToRectangular(this.magnitudes[i], this.angles[i]);
+        }
+    }
+
+    @Benchmark
+    public Vec2 polarToRectangular() {
+        int i = this.next++ & (POINTS - 1);
+        return Util.polarToRectangular(this.magnitudes[i], this.angles[i]);
+    }
+
+    @Benchmark
+    public float[] rectangularToPolar() {
+        int i = this.next++ & (POINTS - 1);
+        return Util.rectangularToPolar(this.points[i]);
+    }
+
+}
@@ -0,0 +1,203 @@
+package sim;
+
+import org.jbox2d.dynamics.World;
+
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * BatchEvaluator.java
+ * @description This class evaluates a whole generation of cars at once, each worker thread dropping its share of the
+ * generation into a single world of its own. Cars never collide with each other (their fixtures share groupIndex -1),
+ * so they can all drive on the same track and share its static bodies and broadphase, with one world step per tick for
+ * the whole share. Genomes go through the same prescreening, cache and store as with a ParallelEvaluator, and the
+ * TrackBroadPhase reports a car's contacts in the same order as its single car world, so a car scores exactly what an
+ * Evaluator gives it whatever the other cars of its batch, and both share the cache and store
+ *
+ */
+class BatchEvaluator implements GenerationEvaluator {
+
+    private final ExecutorService pool;
+    private final ThreadLocal<Lane> lanes; //one world per worker thread
+    private final LongAdder steps = new LongAdder(); //the steps every car survived, as a ParallelEvaluator counts them
+    private final int threads;
+
+    /**
+     * @param track the tile angles of the track, in the format used by Ground.customGround
+     * @param threads the number of worker threads
+     * @param cache the fitness cache shared by the worker threads, or null to simulate every genome
+     * @param store the evaluation store shared by the worker threads, or null to not use one
+     */
+    BatchEvaluator(ArrayList<float[]> track, int threads, FitnessCache cache, EvaluationStore store) {
+        this.lanes = ThreadLocal.withInitial(() -> new Lane(new Evaluator(track), track, 0, cache, store));
+        this.threads = threads;
+        this.pool = newPool(threads);
+    }
+
+    /**
+     * @param trackSeed the seed of the endless track streamed with Ground.streaming on
+     * @param threads the number of worker threads
+     * @param cache the fitness cache shared by the worker threads, or null to simulate every genome
+     * @param store the evaluation store shared by the worker threads, or null to not use one
+     */
+    BatchEvaluator(long trackSeed, int threads, FitnessCache cache, EvaluationStore store) {
+        Evaluator.checkStreaming();
+        this.lanes = ThreadLocal.withInitial(() -> new Lane(new Evaluator(trackSeed), null, trackSeed, cache, store));
+        this.threads = threads;
+        this.pool = newPool(threads);
+    }
+
+    private static ExecutorService newPool(int threads) {
+        return Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "batch-evaluator");
+            thread.setDaemon(true); //never keep the JVM alive once the algorithm is done
+            return thread;
+        });
+    }
+
+    /**
+     * evaluate
+     * @description Splits the cars into one contiguous share per worker thread and runs every share as one batch
+     */
+    @Override
+    public void evaluate(float[] genes, int[] cars, int count, float[] fitness) {
+        int shares = Math.min(this.threads, count);
+        ArrayList<Callable<Void>> workers = new ArrayList<>();
+        for (int w = 0; w < shares; w++) {
+            int from = (int) ((long) count * w / shares);
+            int to = (int) ((long) count * (w + 1) / shares);
+            workers.add(() -> {
+                this.lanes.get().evaluate(genes, cars, from, to, fitness);
+                return null;
+            });
+        }
+        try {
+            for (Future<Void> result : this.pool.invokeAll(workers)) {
+                result.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Evaluation was interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Evaluation failed", e.getCause());
+        }
+    }
+
+    @Override
+    public long getSteps() {
+        return this.steps.sum();
+    }
+
+    @Override
+    public void shutdown() {
+        this.pool.shutdownNow();
+    }
+
+    /**
+     * Lane
+     * @description The world of one worker thread, with the evaluator it looks genomes up and records them through
+     */
+    private class Lane {
+
+        private final World world; //the physics world, shared by every batch of the thread
+        private final Evaluator lookup; //never simulates, only prescreens, looks up and records
+        private final boolean streaming; //whether the track is streamed instead of built up front
+        private final long trackSeed; //the seed of the streamed track
+        private final float[] row = new float[Population.GENOME_LENGTH]; //the genome being looked up
+
+        //the cars of the current batch, with dead cars set to null
+        private Car[] batch = new Car[0];
+        private float[][] genomes = new float[0][];
+        private int[] positions = new int[0]; //the position of each car in the generation's cars
+        private float[] xs = new float[0]; //the x coordinates of the living cars, for the streamed ground
+
+        Lane(Evaluator lookup, ArrayList<float[]> track, long trackSeed, FitnessCache cache, EvaluationStore store) {
+            //cars never collide with each other, so the broadphase only needs to pair them with the track
+            this.world = TrackBroadPhase.createWorld();
+            this.lookup = lookup;
+            this.lookup.setCache(cache);
+            this.lookup.setStore(store);
+            this.streaming = track == null;
+            this.trackSeed = trackSeed;
+            if (!this.streaming) {
+                Ground ground = new Ground(this.world);
+                ground.createTrack(track);
+            }
+        }
+
+        /**
+         * evaluate
+         * @description Gives every car of the share that the lookup cannot score a car in the world, then steps the
+         * world until the last one dies, removing each car from the world as soon as it dies
+         * @param from the position of the first car of the share in cars
+         * @param to the position after the last car of the share
+         */
+        void evaluate(float[] genes, int[] cars, int from, int to, float[] fitness) {
+            if (this.batch.length < to - from) {
+                this.batch = new Car[to - from];
+                this.genomes = new float[to - from][];
+                this.positions = new int[to - from];
+                this.xs = new float[to - from];
+            }
+            int size = 0;
+            for (int i = from; i < to; i++) {
+                System.arraycopy(genes, cars[i] * Population.GENOME_LENGTH, this.row, 0, this.row.length);
+                Float known = this.lookup.lookup(this.row);
+                if (known != null) {
+                    fitness[i] = known;
+                    continue;
+                }
+                float[] genome = this.row.clone(); //kept until the car dies, to record it
+                this.batch[size] = new Car(genome, this.world, RandomSource.forGenome(genome));
+                this.genomes[size] = genome;
+                this.positions[size++] = i;
+            }
+            StreamingGround stream = this.streaming ? new StreamingGround(this.world, this.trackSeed) : null;
+            int alive = size;
+            int step = 0;
+            while (alive > 0) {
+                if (stream != null) {
+                    updateStream(stream, size);
+                }
+                this.world.step(Evaluator.TIME_STEP, Evaluator.VELOCITY_ITERATIONS, Evaluator.POSITION_ITERATIONS);
+                step++;
+                for (int k = 0; k < size; k++) {
+                    Car car = this.batch[k];
+                    if (car != null && car.checkDeath()) { //retire the car as soon as it dies
+                        fitness[this.positions[k]] = car.getFitnessScore();
+                        this.lookup.record(this.genomes[k], car, step);
+                        steps.add(step);
+                        car.kill();
+                        this.batch[k] = null;
+                        this.genomes[k] = null;
+                        alive--;
+                    }
+                }
+            }
+            if (stream != null) {
+                stream.destroy(); //the next batch streams the track again from its start
+            }
+        }
+
+        /**
+         * updateStream
+         * @description Keeps the ground alive around every living car
+         */
+        private void updateStream(StreamingGround stream, int size) {
+            int alive = 0;
+            for (int k = 0; k < size; k++) {
+                if (this.batch[k] != null) {
+                    this.xs[alive++] = this.batch[k].getPosition().x;
+                }
+            }
+            stream.update(this.xs, alive);
+        }
+
+    }
+
+}
@@ -2,6 +2,7 @@ package sim;
 
 import java.util.ArrayList;
 import java.util.TreeMap;
+import java.util.concurrent.atomic.LongAdder;
 
 import org.jbox2d.collision.shapes.CircleShape;
 import org.jbox2d.collision.shapes.PolygonShape;
@@ -18,7 +19,22 @@ import sim.CarDefinition.WheelDefinition;
  */
 class Car {
 
-    private static final int MAX_CAR_HEALTH = MainWindow.FPS;
+    private static final int MAX_CAR_HEALTH = Evaluator.FPS;
+    private static final float MIN_PROGRESS = 0.5F; //the distance a car has to gain to count as making progress
+
+    //a car jiggling in place keeps its health up forever, so these stop it no matter what its health is
+    static int maxSteps = 120 * Evaluator.FPS; //the most steps a car may run, or 0 for no limit
+    static int progressWindow = 10 * Evaluator.FPS; //the most steps a car may go without progress, or 0 for no limit
+
+    //the limit that stopped a car, see getLimit
+    static final int NO_LIMIT = 0;
+    static final int STEP_LIMIT = 1;
+    static final int PROGRESS_LIMIT = 2;
+
+    //the cars stopped by the limits, over every car of the process
+    private static final LongAdder stepLimited = new LongAdder();
+    private static final LongAdder progressLimited = new LongAdder();
+    private static final LongAdder stepsSaved = new LongAdder();
 
     private Body chassis; //the chassis of the car
     //the following two arraylists are used to destroy the car
@@ -31,6 +47,10 @@ class Car {
     private float maxPositionx = 0F;
     private float maxPositiony = 0F;
     private float minPositiony = 0F;
+    private int steps = 0; //the number of times checkDeath has been called
+    private int lastProgress = 0; //the step the car last made progress on
+    private float progressMark = 0F; //the distance the car last made progress to
+    private int limit = NO_LIMIT; //the limit that stopped the car, if one did
 
     private CarDefinition definition;
 
@@ -52,15 +72,15 @@ class Car {
                 Body wheel = createWheel(this.definition.getWheels().get(i)); //create the wheel
                 this.wheels.add(wheel);
                 carMass += wheel.getMass();
-                this.joints.add(createJointForWheel(wheel, this.definition.getWheels().get(i), ((carMass) * (-MainWindow.GRAVITY.y / this.definition.getWheels().get(i).getRadius())))); //create the joint for the wheel
+                this.joints.add(createJointForWheel(wheel, this.definition.getWheels().get(i), ((carMass) * (-Evaluator.GRAVITY.y / this.definition.getWheels().get(i).getRadius())))); //create the joint for the wheel
             }
         }
     }
 
-    Car(float[] genome, World world) {
+    Car(float[] genome, World world, RandomSource random) {
         this.world = world;
         this.genome = genome;
-        this.definition = createDefinition();
+        this.definition = createDefinition(random);
         this.wheels = new ArrayList<>();
         this.joints = new ArrayList<>();
         this.chassis = createChassis(this.definition.getVertices()); // create chassis
@@ -71,7 +91,7 @@ class Car {
                 Body wheel = createWheel(this.definition.getWheels().get(i));
                 this.wheels.add(wheel);
                 carMass += wheel.getMass();
-                this.joints.add(createJointForWheel(wheel, this.definition.getWheels().get(i), (carMass * (-MainWindow.GRAVITY.y / this.definition.getWheels().get(i).getRadius()))));
+                this.joints.add(createJointForWheel(wheel, this.definition.getWheels().get(i), (carMass * (-Evaluator.GRAVITY.y / this.definition.getWheels().get(i).getRadius()))));
             }
         }
     }
@@ -80,9 +100,10 @@ class Car {
      * createDefinition
      *
      * @author Jonah Shapiro
+     * @param random the random source for the wheel densities, which are not part of the genome
      * @return the created definition
      */
-    private CarDefinition createDefinition() {
+    private CarDefinition createDefinition(RandomSource random) {
         CarDefinition def = new CarDefinition();
         //create the definition vertices
         for (int i = 0; i < CarDefinition.NUM_VERTICES; i++) {
@@ -90,7 +111,7 @@ class Car {
         }
         //create the definiton wheels
         for (int w = 0; w < CarDefinition.NUM_WHEELS; w++) {
-            def.addWheel(def.new WheelDefinition(this.genome[(w * 2) + (CarDefinition.NUM_VERTICES * 2)], Util.nextFloat(25, 75), (int) this.genome[(w * 2) + 1 + (CarDefinition.NUM_VERTICES * 2)]));
+            def.addWheel(def.new WheelDefinition(this.genome[(w * 2) + (CarDefinition.NUM_VERTICES * 2)], Util.nextFloat(random, 25, 75), (int) this.genome[(w * 2) + 1 + (CarDefinition.NUM_VERTICES * 2)]));
         }
         return def;
     }
@@ -127,6 +148,7 @@ class Car {
      */
     boolean checkDeath() {
         Vec2 position = this.getPosition();
+        this.steps++;
 
         if (position.y > this.maxPositiony) { //increment the maximum height reached
             this.maxPositiony = position.y;
@@ -139,7 +161,7 @@ class Car {
         if (position.x < 0.0F) {
             return true;
         }
-        if (position.x > Ground.maxSegments) {
+        if (!Ground.streaming && position.x > Ground.maxSegments) { //a streamed track has no finish line
             this.maxPositionx = Ground.maxSegments;
             return true;
         }
@@ -158,10 +180,84 @@ class Car {
                 this.maxPositionx = position.x;
             }
             this.health--; //decrement the car's health
-            return this.health <= 0;
+            if (this.health <= 0) {
+                return true;
+            }
         }
-        return false;
+        return checkLimits();
+
+    }
 
+    /**
+     * checkLimits
+     * @description Stops a car that has run out of steps or has not made progress for progressWindow steps, even if
+     * it is still moving up and down
+     * @return whether the car has reached a limit
+     */
+    private boolean checkLimits() {
+        if (this.maxPositionx > this.progressMark + MIN_PROGRESS) {
+            this.progressMark = this.maxPositionx;
+            this.lastProgress = this.steps;
+        }
+        if (maxSteps > 0 && this.steps >= maxSteps) {
+            this.limit = STEP_LIMIT;
+        } else if (progressWindow > 0 && this.steps - this.lastProgress >= progressWindow) {
+            this.limit = PROGRESS_LIMIT;
+        } else {
+            return false;
+        }
+        countLimit(this.limit, this.steps);
+        return true;
+    }
+
+    /**
+     * countLimit
+     * @description Adds a car stopped by a limit to the counters of the process. Cars stopped on an EvaluationWorker
+     * are counted on the coordinator through this as well
+     * @param limit STEP_LIMIT or PROGRESS_LIMIT
+     * @param steps the steps the car had run when it was stopped
+     */
+    static void countLimit(int limit, int steps) {
+        if (limit == STEP_LIMIT) {
+            stepLimited.increment();
+        } else if (limit == PROGRESS_LIMIT) {
+            progressLimited.increment();
+            if (maxSteps > 0) {
+                stepsSaved.add(maxSteps - steps); //the car would have run until the step limit at most
+            }
+        }
+    }
+
+    /**
+     * getLimit
+     * @return STEP_LIMIT or PROGRESS_LIMIT if a limit stopped the car, and NO_LIMIT otherwise
+     */
+    int getLimit() {
+        return this.limit;
+    }
+
+    /**
+     * getStepLimited
+     * @return the number of cars stopped for running maxSteps steps
+     */
+    static long getStepLimited() {
+        return stepLimited.sum();
+    }
+
+    /**
+     * getProgressLimited
+     * @return the number of cars stopped for making no progress in progressWindow steps
+     */
+    static long getProgressLimited() {
+        return progressLimited.sum();
+    }
+
+    /**
+     * getStepsSaved
+     * @return the steps the cars stopped for making no progress had left before the step limit would have stopped them
+     */
+    static long getStepsSaved() {
+        return stepsSaved.sum();
     }
 
     /**
@@ -263,14 +359,30 @@ class Car {
         body.createFixture(fixtureDef);
     }
 
-    private Vec2 getPosition() {
+    Vec2 getPosition() {
         return chassis.getPosition();
     }
 
+    Body getChassis() {
+        return this.chassis;
+    }
+
+    ArrayList<Body> getWheels() {
+        return this.wheels;
+    }
+
     float[] getGenome() {
         return this.genome;
     }
 
+    float getMaxHeight() {
+        return this.maxPositiony;
+    }
+
+    float getMinHeight() {
+        return this.minPositiony;
+    }
+
     float getFitnessScore() {
         return this.maxPositionx;
     }
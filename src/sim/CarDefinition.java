@@ -2,9 +2,10 @@ package sim;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Random;
+import java.util.TreeMap;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import org.jbox2d.collision.shapes.PolygonShape;
 import org.jbox2d.common.MathUtils;
 import org.jbox2d.common.Settings;
 import org.jbox2d.common.Vec2;
@@ -25,7 +26,9 @@ class CarDefinition {
     private static final float MIN_MAGNITUDE = 0.1F;
     private static final float MAX_MAGNITUDE = 1.0F;
     static final int NUM_VERTICES = 8;
-    static final float CHASSIS_DENSITY = Util.nextFloat(100, 300);
+    static final float CHASSIS_DENSITY = 200F;
+    private static final float MIN_VERTEX_DISTANCE_SQUARED = 0.5f * Settings.linearSlop; //closer vertices make a degenerate polygon
+    private static final float MIN_VERTEX_DISTANCE = (float) Math.sqrt(MIN_VERTEX_DISTANCE_SQUARED);
 
     private ArrayList<Vec2> vertices;
 
@@ -34,6 +37,13 @@ class CarDefinition {
     private static final float MAX_WHEEL_RADIUS = 0.3F;
     static final int NUM_WHEELS = 3;
 
+    //the verdicts of prescreen
+    static final int VIABLE = 0;
+    static final int NO_WHEELS = 1; //every wheel vertex gene is -1
+    static final int DEGENERATE_CHASSIS = 2; //a triangle of the chassis is a line, which breaks its mass
+    static final int UNBUILDABLE = 3; //a wheel vertex gene names no vertex, so Car cannot build the car
+    static final int VERDICTS = 4;
+
     private ArrayList<WheelDefinition> wheels;
 
     /**
@@ -86,7 +96,7 @@ class CarDefinition {
     static boolean checkValid(Vec2 point, ArrayList<Vec2> vertices) {
         for (Vec2 vertice : vertices) { //compare the given vertex to each other vertex
             if (!point.equals(vertice)) {
-                if (MathUtils.distanceSquared(point, vertice) < 0.5f * Settings.linearSlop) { //if the points are colinear
+                if (MathUtils.distanceSquared(point, vertice) < MIN_VERTEX_DISTANCE_SQUARED) { //if the points are colinear
                     return false;
                 }
             }
@@ -94,14 +104,138 @@ class CarDefinition {
         return true;
     }
 
+    /**
+     * toVertices
+     * @description Converts the chassis of a genome to rectangular vertices without allocating. This uses Math.cos and
+     * Math.sin rather than the lookup table of Util.polarToRectangular, which is several times slower over the angles
+     * of evolved genomes. The two agree far more closely than the minimum vertex distance
+     * @param genes the genes holding the genome
+     * @param offset the index of the genome's first gene
+     * @param points the array to write the vertices to, as x0, y0, x1, y1, ...
+     * @param pointOffset the index of the first vertex's x in points
+     */
+    static void toVertices(float[] genes, int offset, float[] points, int pointOffset) {
+        for (int i = 0; i < NUM_VERTICES; i++) {
+            toVertex(genes, offset, i, points, pointOffset);
+        }
+    }
+
+    private static void toVertex(float[] genes, int offset, int vertex, float[] points, int pointOffset) {
+        float magnitude = genes[offset + vertex * 2];
+        float angle = genes[offset + vertex * 2 + 1];
+        points[pointOffset + vertex * 2] = magnitude * (float) Math.cos(angle);
+        points[pointOffset + vertex * 2 + 1] = magnitude * (float) Math.sin(angle);
+    }
+
+    /**
+     * findCollision
+     * @description Checks a chassis for polygon degeneracy without allocating
+     * @param points the vertices of the chassis, as written by toVertices
+     * @param pointOffset the index of the first vertex's x in points
+     * @return the index of a vertex too close to an earlier one, or -1 if the chassis is valid
+     */
+    static int findCollision(float[] points, int pointOffset) {
+        for (int j = 1; j < NUM_VERTICES; j++) {
+            for (int i = 0; i < j; i++) {
+                float dx = points[pointOffset + j * 2] - points[pointOffset + i * 2];
+                float dy = points[pointOffset + j * 2 + 1] - points[pointOffset + i * 2 + 1];
+                if (dx * dx + dy * dy < MIN_VERTEX_DISTANCE_SQUARED) {
+                    return j;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * repairChassis
+     * @description Makes the chassis of a genome valid in place. A vertex too close to another is moved away from it
+     * along its circle, by the angle that puts it two minimum distances from where it was, up to NUM_VERTICES times.
+     * If the chassis is still degenerate the vertices are spread evenly around the centre, keeping their magnitudes,
+     * which is always valid. The cost is bounded and the result depends only on the genes
+     * @param genes the genes holding the genome
+     * @param offset the index of the genome's first gene
+     * @param points the vertices of the chassis, as written by toVertices, which are kept up to date with the genes
+     * @param pointOffset the index of the first vertex's x in points
+     * @return whether the chassis had to be repaired
+     */
+    static boolean repairChassis(float[] genes, int offset, float[] points, int pointOffset) {
+        int vertex = findCollision(points, pointOffset);
+        if (vertex < 0) {
+            return false;
+        }
+        for (int nudge = 0; nudge < NUM_VERTICES && vertex >= 0; nudge++) {
+            float magnitude = genes[offset + vertex * 2];
+            if (Math.abs(magnitude) < MIN_MAGNITUDE) {
+                magnitude = Math.copySign(MIN_MAGNITUDE, magnitude); //points near the centre crowd each other
+                genes[offset + vertex * 2] = magnitude;
+            }
+            genes[offset + vertex * 2 + 1] += 2 * (float) Math.asin(Math.min(1, MIN_VERTEX_DISTANCE / Math.abs(magnitude)));
+            toVertex(genes, offset, vertex, points, pointOffset);
+            vertex = findCollision(points, pointOffset);
+        }
+        if (vertex >= 0) {
+            for (int i = 0; i < NUM_VERTICES; i++) {
+                genes[offset + i * 2] = Math.max(Math.abs(genes[offset + i * 2]), MIN_MAGNITUDE);
+                genes[offset + i * 2 + 1] = i * MAX_ANGLE / NUM_VERTICES;
+            }
+            toVertices(genes, offset, points, pointOffset);
+        }
+        return true;
+    }
+
+    /**
+     * prescreen
+     * @description Decodes a genome the way Car does and looks for cars that are hopeless before any body is built: a
+     * wheel on a vertex that does not exist, which Car cannot build, a car with no wheels, and a chassis with a triangle
+     * JBox2D collapses into a line, which leaves the whole chassis without a centre of mass. A triangle with welded
+     * points is not degenerate, since JBox2D builds a box in its place, and neither are wheels above the chassis, since
+     * the car usually rolls over onto them
+     * @param genome the genome of the car
+     * @return VIABLE, or the reason the car is hopeless
+     */
+    static int prescreen(float[] genome) {
+        boolean wheels = false;
+        for (int w = 0; w < NUM_WHEELS; w++) {
+            int vertex = (int) genome[(w * 2) + 1 + (NUM_VERTICES * 2)];
+            if (vertex < -1 || vertex >= NUM_VERTICES) {
+                return UNBUILDABLE;
+            }
+            wheels |= vertex != -1;
+        }
+        if (!wheels) {
+            return NO_WHEELS;
+        }
+
+        //the chassis as Car.createChassis builds it, a fan of triangles from the centre between the vertices in order of angle
+        TreeMap<Float, Float> points = new TreeMap<>();
+        for (int i = 0; i < NUM_VERTICES; i++) {
+            float[] polar = Util.rectangularToPolar(Util.polarToRectangular(genome[i * 2], genome[(i * 2) + 1]));
+            points.put(polar[1], polar[0]);
+        }
+        ArrayList<Vec2> sorted = new ArrayList<>();
+        for (Float angle : points.keySet()) {
+            sorted.add(Util.polarToRectangular(points.get(angle), angle));
+        }
+        PolygonShape shape = new PolygonShape(); //a shape needs no world, so JBox2D can judge the triangles itself
+        for (int part = 1; part < sorted.size(); part++) {
+            shape.set(new Vec2[]{sorted.get(part - 1), sorted.get(part), new Vec2(0, 0)}, 3);
+            if (shape.getVertexCount() < 3) {
+                return DEGENERATE_CHASSIS;
+            }
+        }
+        return VIABLE;
+    }
+
     /**
      * createRandomCar
      *
      * @author Jonah Shapiro
+     * @param random the random source to draw the car from
      * @return a CarDefinition containing a randomly generated car
      *
      */
-    static CarDefinition createRandomCar() {
+    static CarDefinition createRandomCar(RandomSource random) {
         ArrayList<Vec2> vertices = new ArrayList<>();
         ArrayList<WheelDefinition> wheels = new ArrayList<>();
         CarDefinition def = new CarDefinition();
@@ -109,19 +243,18 @@ class CarDefinition {
         for (int i = 0; i < NUM_VERTICES; i++) {
             Vec2 point;
             do {
-                float angle = Util.nextFloat(MIN_ANGLE, MAX_ANGLE); //generate a random angle
-                float magnitude = Util.nextFloat(MIN_MAGNITUDE, MAX_MAGNITUDE); //generate a random magnitude
+                float angle = Util.nextFloat(random, MIN_ANGLE, MAX_ANGLE); //generate a random angle
+                float magnitude = Util.nextFloat(random, MIN_MAGNITUDE, MAX_MAGNITUDE); //generate a random magnitude
                 point = Util.polarToRectangular(magnitude, angle); //convert the polar coords to rectangular coords
             } while (!checkValid(point, vertices)); //check for polygon degeneracy
             vertices.add(point);
         }
         List<Integer> left = Stream.of(-1, -1, -1, 0, 1, 2, 3, 4, 5, 6, 7).collect(Collectors.toList()); //use a stream to ensure two wheels do not share a vertex
-        Random r = new Random();
         // generate wheels
         for (int w = 0; w < NUM_WHEELS; w++) {
-            int vertex = left.remove(r.nextInt(left.size())); //get a random vertex
-            float radius = Util.nextFloat(MIN_WHEEL_RADIUS, MAX_WHEEL_RADIUS); //generate a random radius
-            float density = Util.nextFloat(50, 100); //generate a random density
+            int vertex = left.remove(random.nextInt(left.size())); //get a random vertex
+            float radius = Util.nextFloat(random, MIN_WHEEL_RADIUS, MAX_WHEEL_RADIUS); //generate a random radius
+            float density = Util.nextFloat(random, 50, 100); //generate a random density
             wheels.add(def.new WheelDefinition(radius, density, vertex)); //add the wheel to the definition
         }
 
@@ -0,0 +1,406 @@
+package sim;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * DistributedEvaluator.java
+ * @description This class evaluates generations on EvaluationWorker processes, which may run on this machine or any
+ * other. A generation is split into batches that wait in one queue, and each worker connection sends the next batch
+ * whenever it has fewer than window batches in flight, so a fast worker takes more batches than a slow one and no
+ * worker is ever sent more than it can keep busy with. When a worker fails, the genomes it had not answered yet go back
+ * to the front of the queue for the other workers, and the failed worker is connected to again for the next generation
+ *
+ */
+class DistributedEvaluator implements GenerationEvaluator {
+
+    static final int DEFAULT_BATCH_SIZE = 16;
+    static final int DEFAULT_WINDOW = 4;
+    static final int DEFAULT_TIMEOUT = 60000; //far longer than any car takes at the default Car.maxSteps
+    private static final int MAX_ATTEMPTS = 3; //a batch that fails this many workers fails the generation
+    private static final int CONNECT_TIMEOUT = 5000;
+
+    private final long trackSeed;
+    private final int batchSize;
+    private final int window;
+    private final ArrayList<Connection> connections = new ArrayList<>();
+    private final LinkedBlockingDeque<Batch> queue = new LinkedBlockingDeque<>();
+    private final LongAdder steps = new LongAdder();
+    private final LongAdder requeued = new LongAdder(); //genomes sent again after their worker failed
+    private int timeout = DEFAULT_TIMEOUT;
+
+    /**
+     * @param workers the addresses of the worker processes
+     * @param trackSeed the seed the workers draw the track from, the same way Evolution does
+     * @param batchSize the most genomes in a batch
+     * @param window the most batches in flight on each worker
+     */
+    DistributedEvaluator(List<InetSocketAddress> workers, long trackSeed, int batchSize, int window) {
+        if (workers.isEmpty()) {
+            throw new IllegalArgumentException("At least one worker is needed");
+        }
+        this.trackSeed = trackSeed;
+        this.batchSize = batchSize;
+        this.window = window;
+        for (InetSocketAddress address : workers) {
+            this.connections.add(new Connection(address));
+        }
+    }
+
+    @Override
+    public void evaluate(float[] genes, int[] cars, int count, float[] fitness) {
+        for (Connection connection : this.connections) {
+            connection.connect(); //brings back workers that failed in an earlier generation
+        }
+        Generation generation = new Generation(genes, cars, count, fitness);
+        for (int start = 0; start < count; start += this.batchSize) {
+            int[] indices = new int[Math.min(this.batchSize, count - start)];
+            for (int i = 0; i < indices.length; i++) {
+                indices[i] = start + i;
+            }
+            this.queue.add(new Batch(generation, indices, 1));
+        }
+        try {
+            while (!generation.finished.await(100, TimeUnit.MILLISECONDS)) {
+                if (generation.failure != null) {
+                    break;
+                }
+                if (aliveCount() == 0) {
+                    for (Connection connection : this.connections) {
+                        connection.connect();
+                    }
+                    if (aliveCount() == 0) {
+                        generation.fail(new IOException("Every worker has failed"));
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            generation.fail(e);
+        }
+        if (generation.failure != null) {
+            this.queue.clear();
+            throw new IllegalStateException("Evaluation failed", generation.failure);
+        }
+    }
+
+    private int aliveCount() {
+        int alive = 0;
+        for (Connection connection : this.connections) {
+            if (connection.alive) {
+                alive++;
+            }
+        }
+        return alive;
+    }
+
+    /**
+     * requeue
+     * @description Puts the genomes of a batch that are still unanswered back at the front of the queue
+     */
+    private void requeue(Batch batch) {
+        int[] remaining = batch.generation.unanswered(batch.indices);
+        if (remaining.length == 0) {
+            return;
+        }
+        if (batch.attempts >= MAX_ATTEMPTS) {
+            batch.generation.fail(new IOException("A batch failed on " + MAX_ATTEMPTS + " workers"));
+            return;
+        }
+        this.requeued.add(remaining.length);
+        this.queue.addFirst(new Batch(batch.generation, remaining, batch.attempts + 1));
+    }
+
+    /**
+     * setTimeout
+     * @description Only applies to connections made after the call, so it should be set before the first generation
+     * @param timeout the longest a worker with batches in flight may go without answering before it counts as failed,
+     * in milliseconds, or 0 to wait for ever
+     */
+    void setTimeout(int timeout) {
+        this.timeout = timeout;
+    }
+
+    @Override
+    public long getSteps() {
+        return this.steps.sum();
+    }
+
+    /**
+     * getRequeued
+     * @return the number of genomes sent to another worker after the worker they were sent to failed
+     */
+    long getRequeued() {
+        return this.requeued.sum();
+    }
+
+    @Override
+    public void shutdown() {
+        for (Connection connection : this.connections) {
+            connection.close();
+        }
+    }
+
+    /**
+     * Generation
+     * @description The cars of one generation being evaluated, with their fitness scores filled in as the workers answer
+     */
+    private class Generation {
+
+        final float[] genes;
+        final int[] cars;
+        final float[] fitness;
+        final boolean[] answered; //a genome is answered once, even when a failed worker answered it late
+        final CountDownLatch finished;
+        volatile Throwable failure;
+
+        Generation(float[] genes, int[] cars, int count, float[] fitness) {
+            this.genes = genes;
+            this.cars = cars;
+            this.fitness = fitness;
+            this.answered = new boolean[count];
+            this.finished = new CountDownLatch(count);
+        }
+
+        synchronized void answer(int genome, float fitness, int carSteps, int verdict, int limit) {
+            if (!this.answered[genome] && this.failure == null) { //the caller's array is left alone once it gave up
+                this.answered[genome] = true;
+                this.fitness[genome] = fitness;
+                steps.add(carSteps);
+                Evaluator.countPrescreen(verdict); //the worker's own counters are out of reach, so they are kept here
+                Car.countLimit(limit, carSteps);
+                this.finished.countDown();
+            }
+        }
+
+        synchronized int[] unanswered(int[] indices) {
+            int count = 0;
+            for (int index : indices) {
+                if (!this.answered[index]) {
+                    count++;
+                }
+            }
+            int[] remaining = new int[count];
+            count = 0;
+            for (int index : indices) {
+                if (!this.answered[index]) {
+                    remaining[count++] = index;
+                }
+            }
+            return remaining;
+        }
+
+        void fail(Throwable failure) {
+            this.failure = failure;
+        }
+
+    }
+
+    /**
+     * Batch
+     * @description Some genomes of a generation, sent to one worker as one message
+     */
+    private static class Batch {
+
+        private static final AtomicInteger ids = new AtomicInteger();
+
+        final int id = ids.incrementAndGet();
+        final Generation generation;
+        final int[] indices; //the positions of the cars in the generation's cars
+        final int attempts;
+
+        Batch(Generation generation, int[] indices, int attempts) {
+            this.generation = generation;
+            this.indices = indices;
+            this.attempts = attempts;
+        }
+
+    }
+
+    /**
+     * Connection
+     * @description The connection to one worker, with a sender thread feeding it batches from the queue while it has
+     * room in its window and a receiver thread reading its answers
+     */
+    private class Connection {
+
+        private final InetSocketAddress address;
+        private final ConcurrentHashMap<Integer, Batch> inFlight = new ConcurrentHashMap<>();
+        private volatile boolean alive = false;
+        private Socket socket;
+        private Semaphore room;
+        private Thread sender;
+        private Thread receiver;
+
+        Connection(InetSocketAddress address) {
+            this.address = address;
+        }
+
+        /**
+         * connect
+         * @description Connects to the worker and starts the threads, unless already connected
+         */
+        synchronized void connect() {
+            if (this.alive) {
+                return;
+            }
+            try {
+                this.socket = new Socket();
+                this.socket.connect(this.address, CONNECT_TIMEOUT);
+                this.socket.setTcpNoDelay(true);
+                this.socket.setSoTimeout(timeout);
+                DataInputStream in = new DataInputStream(new BufferedInputStream(this.socket.getInputStream()));
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(this.socket.getOutputStream()));
+                if (in.readInt() != EvaluationWorker.MAGIC || in.readInt() != EvaluationWorker.VERSION) {
+                    throw new IOException("Not a worker of this version");
+                }
+                out.writeByte(EvaluationWorker.SETUP);
+                out.writeLong(trackSeed);
+                out.writeInt(Ground.maxSegments);
+                out.writeBoolean(Ground.useChain);
+                out.writeBoolean(Ground.streaming);
+                out.writeInt(Car.maxSteps);
+                out.writeInt(Car.progressWindow);
+                out.writeBoolean(Evaluator.prescreening);
+                out.flush();
+                this.room = new Semaphore(window);
+                this.alive = true;
+                Socket current = this.socket;
+                this.sender = new Thread(() -> send(current, out), "coordinator-sender");
+                this.receiver = new Thread(() -> receive(current, in), "coordinator-receiver");
+                this.sender.setDaemon(true);
+                this.receiver.setDaemon(true);
+                this.sender.start();
+                this.receiver.start();
+            } catch (IOException e) {
+                System.err.println("Could not connect to worker " + this.address + ": " + e.getMessage());
+                closeSocket(this.socket);
+            }
+        }
+
+        private void send(Socket current, DataOutputStream out) {
+            Batch batch = null;
+            try {
+                while (true) {
+                    this.room.acquire(); //backpressure: wait until the worker has room for another batch
+                    batch = queue.take();
+                    if (batch.generation.failure != null) {
+                        this.room.release();
+                        batch = null;
+                        continue; //the generation was given up
+                    }
+                    Batch sent = batch;
+                    synchronized (this) { //under the lock of fail, so the batch is either requeued here or by fail
+                        if (this.socket != current || !this.alive) {
+                            queue.addFirst(sent); //the connection failed while this thread waited
+                            return;
+                        }
+                        this.inFlight.put(sent.id, sent); //from here on a failure requeues it
+                    }
+                    batch = null;
+                    out.writeByte(EvaluationWorker.BATCH);
+                    out.writeInt(sent.id);
+                    out.writeInt(sent.indices.length);
+                    for (int index : sent.indices) {
+                        int offset = sent.generation.cars[index] * Population.GENOME_LENGTH;
+                        for (int k = 0; k < Population.GENOME_LENGTH; k++) {
+                            out.writeFloat(sent.generation.genes[offset + k]);
+                        }
+                    }
+                    out.flush();
+                }
+            } catch (InterruptedException e) {
+                if (batch != null) {
+                    queue.addFirst(batch);
+                }
+            } catch (IOException e) {
+                fail(current, e);
+            }
+        }
+
+        private void receive(Socket current, DataInputStream in) {
+            try {
+                while (true) {
+                    int id;
+                    try {
+                        id = in.readInt();
+                    } catch (SocketTimeoutException e) {
+                        if (this.inFlight.isEmpty()) {
+                            continue; //an idle worker is not a failed one
+                        }
+                        throw e;
+                    }
+                    int index = in.readInt();
+                    float fitness = in.readFloat();
+                    int carSteps = in.readInt();
+                    int verdict = in.readByte();
+                    int limit = in.readByte();
+                    Batch batch = this.inFlight.get(id);
+                    if (batch == null) {
+                        throw new IOException("Answer for unknown batch " + id);
+                    }
+                    batch.generation.answer(batch.indices[index], fitness, carSteps, verdict, limit);
+                    if (batch.generation.unanswered(batch.indices).length == 0) {
+                        this.inFlight.remove(id);
+                        this.room.release();
+                    }
+                }
+            } catch (IOException e) {
+                fail(current, e);
+            }
+        }
+
+        /**
+         * fail
+         * @description Closes a failed connection and hands its unanswered genomes to the other workers
+         */
+        private synchronized void fail(Socket failed, IOException cause) {
+            if (this.socket != failed || !this.alive) {
+                return; //already handled
+            }
+            System.err.println("Worker " + this.address + " failed: " + cause);
+            this.alive = false;
+            closeSocket(failed);
+            this.sender.interrupt();
+            for (Batch batch : this.inFlight.values()) {
+                requeue(batch);
+            }
+            this.inFlight.clear();
+        }
+
+        synchronized void close() {
+            this.alive = false;
+            closeSocket(this.socket);
+            if (this.sender != null) {
+                this.sender.interrupt();
+            }
+        }
+
+        private void closeSocket(Socket socket) {
+            try {
+                if (socket != null) {
+                    socket.close();
+                }
+            } catch (IOException ignored) {
+                //already closed
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,29 @@
+package sim;
+
+/**
+ * Evaluation.java
+ * @description The result of running one car until it died: its fitness score, the highest and lowest points its
+ * chassis reached, and the number of physics steps it survived
+ *
+ */
+class Evaluation {
+
+    final float fitness;
+    final float maxHeight;
+    final float minHeight;
+    final int steps;
+
+    /**
+     * @param fitness the fitness score of the car
+     * @param maxHeight the highest point the chassis reached
+     * @param minHeight the lowest point the chassis reached
+     * @param steps the number of physics steps the car survived
+     */
+    Evaluation(float fitness, float maxHeight, float minHeight, int steps) {
+        this.fitness = fitness;
+        this.maxHeight = maxHeight;
+        this.minHeight = minHeight;
+        this.steps = steps;
+    }
+
+}
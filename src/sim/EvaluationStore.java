@@ -0,0 +1,645 @@
+package sim;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * EvaluationStore.java
+ * @description This class keeps the evaluations of every run in one file, so a genome already evaluated on a track by
+ * any run is never simulated again. The file is a header followed by fixed size records. The first records are the
+ * sorted region, written in key order by the last compaction and searched in place through a memory mapping, so opening
+ * a store costs the same no matter how many records it holds. Every record after it is the tail, appended in arrival
+ * order under a file lock and indexed in memory. The sorted region never changes once mapped, so lookups search it
+ * without taking the store's monitor, and only a miss goes on to the tail. Once the tail grows long a background thread
+ * merges a snapshot of it with the sorted region into a new sorted file while the store keeps serving, then, under the
+ * file lock and the monitor, copies over the records appended since the snapshot, replaces the old file and marks it
+ * retired, which makes every other process holding it reopen the store. File locks are held by the whole process, so
+ * opening a path that is already open in the process returns the same store, shared between its threads. A tail cut
+ * short by a crash or a full disk is cut back to its last whole record, losing only the records past it
+ *
+ */
+class EvaluationStore implements Closeable {
+
+    private static final int MAGIC = 0x45564331;
+    private static final int VERSION = 1;
+
+    //header layout
+    static final int HEADER_SIZE = 32;
+    private static final int COUNT = 8; //long, the number of committed records
+    private static final int SORTED = 16; //long, the number of records in the sorted region, fixed for the life of a file
+    private static final int RETIRED = 24; //int, set once the file has been replaced by a compacted one
+
+    //record layout
+    static final int RECORD_SIZE = 40;
+    private static final int GENOME_HASH = 0; //long
+    private static final int TRACK_ID = 8; //long
+    private static final int FITNESS = 16; //float
+    private static final int MAX_HEIGHT = 20; //float
+    private static final int MIN_HEIGHT = 24; //float
+    private static final int STEPS = 28; //int
+    private static final int CHECKSUM = 32; //int, the CRC32 of the fields before it
+
+    private static final int SEGMENT_RECORDS = 1 << 24; //records per mapping, which keeps each below 2GB
+    static final int COMPACT_THRESHOLD = 1 << 18; //tail records that trigger a compaction
+    private static final int READ_RECORDS = 4096; //records read from the tail at once
+
+    private static final Map<Path, EvaluationStore> OPEN = new HashMap<>(); //the stores open in this process, by path
+
+    private final Path path;
+    private FileChannel channel;
+    private MappedByteBuffer header;
+    private volatile Region region; //the sorted region, read without the monitor
+    private long indexed; //the records read into the tail index so far
+    private HashMap<Key, Evaluation> tail;
+    private HashMap<Key, Evaluation> merging; //the tail a compaction is merging, looked up until the file is replaced
+    private final CRC32 crc = new CRC32();
+    private int users = 0; //the opens not yet closed, guarded by OPEN
+
+    private final Object compacting = new Object(); //held for a whole compaction, so only one runs at a time
+    private Thread compaction; //the background compaction, or null when none is running
+    private int compactAt = COMPACT_THRESHOLD; //the tail size that starts the next background compaction
+
+    private EvaluationStore(Path path) {
+        this.path = path;
+    }
+
+    /**
+     * open
+     * @description Opens the store at the given path, creating it if it does not exist. Every open has to be closed
+     * @param path the path of the store
+     * @return the open store, the same one for every open of the path in this process
+     * @throws IOException if the file cannot be opened or is not an evaluation store
+     */
+    static EvaluationStore open(Path path) throws IOException {
+        Path key = path.toAbsolutePath().normalize();
+        synchronized (OPEN) {
+            EvaluationStore store = OPEN.get(key);
+            if (store == null) {
+                store = new EvaluationStore(key);
+                store.load();
+                OPEN.put(key, store);
+            }
+            store.users++;
+            return store;
+        }
+    }
+
+    /**
+     * genomeHash
+     * @description Hashes a genome quantized the same way as the FitnessCache. A car built from a genome draws its wheel
+     * densities from the genome alone, so the hash and the track id identify an evaluation whichever run made it
+     * @param genome the genome of the car
+     * @return the hash identifying the car in the store
+     */
+    static long genomeHash(float[] genome) {
+        long hash = 0;
+        for (float gene : genome) {
+            hash = RandomSource.mix(hash + Math.round(gene / FitnessCache.QUANTUM));
+        }
+        return hash;
+    }
+
+    /**
+     * get
+     * @description Searches the sorted region without the monitor, then the tail under it
+     * @param genomeHash the hash of the genome, from genomeHash
+     * @param trackId the track the genome was evaluated on
+     * @return the stored evaluation, or null if no run has evaluated the genome on the track
+     */
+    Evaluation get(long genomeHash, long trackId) {
+        Evaluation evaluation = this.region.search(genomeHash, trackId);
+        if (evaluation != null) {
+            return evaluation;
+        }
+        synchronized (this) {
+            try {
+                if (this.header.getInt(RETIRED) != 0) {
+                    load();
+                    evaluation = this.region.search(genomeHash, trackId);
+                    if (evaluation != null) {
+                        return evaluation;
+                    }
+                }
+                Key key = new Key(genomeHash, trackId);
+                evaluation = this.tail.get(key);
+                if (evaluation == null && this.merging != null) {
+                    evaluation = this.merging.get(key);
+                }
+                if (evaluation == null) {
+                    refresh(); //another writer may have added it since
+                    evaluation = this.tail.get(key);
+                }
+                return evaluation;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * put
+     * @description Appends an evaluation to the store, starting a background compaction once the tail has grown too
+     * long
+     * @param genomeHash the hash of the genome, from genomeHash
+     * @param trackId the track the genome was evaluated on
+     * @param evaluation the evaluation of the genome on the track
+     */
+    synchronized void put(long genomeHash, long trackId, Evaluation evaluation) {
+        ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+        record.putLong(GENOME_HASH, genomeHash);
+        record.putLong(TRACK_ID, trackId);
+        record.putFloat(FITNESS, evaluation.fitness);
+        record.putFloat(MAX_HEIGHT, evaluation.maxHeight);
+        record.putFloat(MIN_HEIGHT, evaluation.minHeight);
+        record.putInt(STEPS, evaluation.steps);
+        record.putInt(CHECKSUM, checksum(record, 0));
+        try {
+            FileLock lock = lockCurrent();
+            try {
+                long count = this.header.getLong(COUNT);
+                long position = HEADER_SIZE + count * RECORD_SIZE;
+                while (record.hasRemaining()) {
+                    position += this.channel.write(record, position);
+                }
+                this.header.putLong(COUNT, count + 1); //only committed once the whole record is written
+            } finally {
+                lock.release();
+            }
+            refresh();
+            if (this.tail.size() >= this.compactAt && this.compaction == null) {
+                this.compaction = new Thread(this::compactInBackground, "store-compaction");
+                this.compaction.setDaemon(true); //close waits for it, so it never has to keep the JVM alive
+                this.compaction.start();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * compact
+     * @description Merges the tail into the sorted region, dropping duplicate records, and replaces the file with the
+     * result. The tail is set aside as the snapshot and a new one started, so lookups and appends carry on while the
+     * new file is written, and the records appended meanwhile are carried over to its tail. Nothing is replaced if
+     * another process compacted the file first
+     * @throws IOException if the compacted file cannot be written
+     */
+    void compact() throws IOException {
+        synchronized (this.compacting) {
+            Region region;
+            long indexed;
+            HashMap<Key, Evaluation> snapshot;
+            synchronized (this) {
+                refresh();
+                region = this.region;
+                indexed = this.indexed;
+                snapshot = this.tail;
+                this.merging = snapshot; //never changed again, so it is read below without the monitor
+                this.tail = new HashMap<>();
+            }
+            List<Map.Entry<Key, Evaluation>> entries = new ArrayList<>(snapshot.entrySet());
+            entries.sort(Map.Entry.comparingByKey());
+            //named after the process, since the file is written without the file lock
+            Path temp = this.path.resolveSibling(this.path.getFileName() + "." + ProcessHandle.current().pid() + ".compact");
+            try {
+                long merged = merge(region, entries, temp);
+                synchronized (this) {
+                    replace(region, indexed, merged, temp);
+                }
+            } finally {
+                Files.deleteIfExists(temp); //only still there if the file was not replaced
+                synchronized (this) {
+                    if (this.merging == snapshot) { //the compaction failed, so the snapshot is the tail again
+                        this.tail.forEach(snapshot::putIfAbsent);
+                        this.tail = snapshot;
+                        this.merging = null;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * merge
+     * @description Writes the sorted region and the sorted tail entries to the compacted file, keeping the record of
+     * the sorted region where both hold a key. The header is written by replace
+     * @return the number of records written
+     */
+    private long merge(Region region, List<Map.Entry<Key, Evaluation>> entries, Path temp) throws IOException {
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocate(READ_RECORDS * RECORD_SIZE);
+            CRC32 crc = new CRC32(); //the monitor is not held, so the store's one is not used
+            long position = HEADER_SIZE;
+            long count = 0;
+            long i = 0; //the next record of the sorted region
+            int j = 0; //the next entry of the tail
+            while (i < region.count || j < entries.size()) {
+                int order = i == region.count ? 1 : j == entries.size() ? -1 : region.compare(i, entries.get(j).getKey());
+                if (order <= 0) {
+                    ByteBuffer record = region.segment(i).duplicate();
+                    record.limit(Region.offset(i) + RECORD_SIZE).position(Region.offset(i));
+                    buffer.put(record);
+                    i++;
+                    if (order == 0) {
+                        j++; //the tail record is a duplicate
+                    }
+                } else {
+                    Map.Entry<Key, Evaluation> entry = entries.get(j++);
+                    writeRecord(buffer, entry.getKey(), entry.getValue(), crc);
+                }
+                count++;
+                if (!buffer.hasRemaining()) {
+                    position = flush(out, buffer, position);
+                }
+            }
+            flush(out, buffer, position);
+            return count;
+        }
+    }
+
+    /**
+     * replace
+     * @description Copies the records appended since the snapshot to the tail of the compacted file, writes its header
+     * and moves it over the store, under the file lock so no other process appends meanwhile. Called with the monitor
+     * held, so no thread of this process appends either. The store is reloaded either way, since a file that was
+     * already replaced by another compaction holds everything merged here
+     * @param region the sorted region the compacted file was merged from
+     * @param indexed the records the snapshot of the tail went up to
+     * @param merged the records of the compacted file, all sorted
+     */
+    private void replace(Region region, long indexed, long merged, Path temp) throws IOException {
+        FileLock lock = this.channel.lock();
+        try {
+            if (this.region == region && this.header.getInt(RETIRED) == 0) { //else another compaction replaced it first
+                long count = Math.min(this.header.getLong(COUNT), intactRecords());
+                long appended = Math.max(0, count - indexed);
+                try (FileChannel out = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                    long position = HEADER_SIZE + merged * RECORD_SIZE;
+                    long copied = 0;
+                    while (copied < appended * RECORD_SIZE) {
+                        copied += this.channel.transferTo(HEADER_SIZE + indexed * RECORD_SIZE + copied, appended * RECORD_SIZE - copied, out.position(position + copied));
+                    }
+                    ByteBuffer head = newHeader(merged + appended, merged);
+                    while (head.hasRemaining()) {
+                        out.write(head, head.position());
+                    }
+                    out.force(true);
+                }
+                Files.move(temp, this.path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                this.header.putInt(RETIRED, 1);
+                this.header.force();
+            }
+        } finally {
+            lock.release();
+        }
+        load();
+    }
+
+    /**
+     * compactInBackground
+     * @description Compacts the store on the background thread. A compaction that fails is only tried again once the
+     * tail has grown by another COMPACT_THRESHOLD records
+     */
+    private void compactInBackground() {
+        try {
+            compact();
+        } catch (IOException | UncheckedIOException e) {
+            System.err.println(this.path + " could not be compacted: " + e.getMessage());
+            synchronized (this) {
+                this.compactAt = this.tail.size() + COMPACT_THRESHOLD;
+            }
+        } finally {
+            synchronized (this) {
+                this.compaction = null;
+            }
+        }
+    }
+
+    /**
+     * size
+     * @return the number of records in the store, including any duplicates not yet compacted away
+     */
+    synchronized long size() {
+        return this.header.getLong(COUNT);
+    }
+
+    /**
+     * getTailSize
+     * @return the number of distinct evaluations in the tail
+     */
+    synchronized int getTailSize() {
+        return this.tail.size() + (this.merging == null ? 0 : this.merging.size());
+    }
+
+    /**
+     * close
+     * @description Closes the file once every open of the store has been closed
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (OPEN) {
+            if (this.users == 0) {
+                return; //already closed
+            }
+            if (--this.users == 0) {
+                OPEN.remove(this.path);
+                Thread running;
+                synchronized (this) {
+                    running = this.compaction;
+                }
+                if (running != null) {
+                    try {
+                        running.join(); //never close the file under a compaction
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new InterruptedIOException("Interrupted while " + this.path + " was compacted");
+                    }
+                }
+                synchronized (this) {
+                    this.channel.close();
+                }
+            }
+        }
+    }
+
+    /**
+     * load
+     * @description Opens the file at the path, mapping its sorted region and indexing its tail
+     */
+    private void load() throws IOException {
+        if (this.channel != null) {
+            this.channel.close();
+        }
+        this.channel = FileChannel.open(this.path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (this.channel.size() < HEADER_SIZE) {
+            FileLock lock = this.channel.lock();
+            try {
+                if (this.channel.size() < HEADER_SIZE) { //another process may have created it first
+                    ByteBuffer head = newHeader(0, 0);
+                    while (head.hasRemaining()) {
+                        this.channel.write(head, head.position());
+                    }
+                    this.channel.force(true);
+                }
+            } finally {
+                lock.release();
+            }
+        }
+        this.header = this.channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+        if (this.header.getInt(0) != MAGIC || this.header.getInt(4) != VERSION) {
+            this.channel.close();
+            throw new IOException(this.path + " is not an evaluation store");
+        }
+        long sorted = this.header.getLong(SORTED);
+        if (intactRecords() < sorted) {
+            this.channel.close();
+            throw new IOException(this.path + " is shorter than its sorted region");
+        }
+        MappedByteBuffer[] segments = new MappedByteBuffer[(int) ((sorted + SEGMENT_RECORDS - 1) / SEGMENT_RECORDS)];
+        for (int s = 0; s < segments.length; s++) {
+            long records = Math.min(SEGMENT_RECORDS, sorted - (long) s * SEGMENT_RECORDS);
+            segments[s] = this.channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE + (long) s * SEGMENT_RECORDS * RECORD_SIZE, records * RECORD_SIZE);
+        }
+        this.tail = new HashMap<>();
+        this.merging = null;
+        this.indexed = sorted;
+        this.compactAt = COMPACT_THRESHOLD;
+        refresh();
+        this.region = new Region(segments, sorted); //published last, once the tail holds what it does not
+    }
+
+    /**
+     * lockCurrent
+     * @description Locks the file, reopening the store first if it has been replaced by a compacted file
+     * @return the lock, held on the current file
+     */
+    private FileLock lockCurrent() throws IOException {
+        while (true) {
+            FileLock lock = this.channel.lock();
+            if (this.header.getInt(RETIRED) == 0) {
+                return lock;
+            }
+            lock.release();
+            load();
+        }
+    }
+
+    /**
+     * refresh
+     * @description Indexes the records committed to the tail since it was last read
+     */
+    private void refresh() throws IOException {
+        long count = this.header.getLong(COUNT);
+        if (count > intactRecords()) {
+            count = repair();
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(READ_RECORDS * RECORD_SIZE);
+        while (this.indexed < count) {
+            int records = (int) Math.min(READ_RECORDS, count - this.indexed);
+            buffer.clear().limit(records * RECORD_SIZE);
+            long position = HEADER_SIZE + this.indexed * RECORD_SIZE;
+            while (buffer.hasRemaining()) {
+                int read = this.channel.read(buffer, position);
+                if (read < 0) {
+                    throw new IOException(this.path + " was truncated while it was read");
+                }
+                position += read;
+            }
+            for (int r = 0; r < records; r++) {
+                int offset = r * RECORD_SIZE;
+                if (buffer.getInt(offset + CHECKSUM) != checksum(buffer, offset)) {
+                    continue; //never index a damaged record
+                }
+                this.tail.putIfAbsent(new Key(buffer.getLong(offset + GENOME_HASH), buffer.getLong(offset + TRACK_ID)), readEvaluation(buffer, offset));
+            }
+            this.indexed += records;
+        }
+    }
+
+    /**
+     * repair
+     * @description Cuts the committed count back to the records the file holds in full, and the file back to the end
+     * of the last of them, so appends carry on after the intact prefix
+     * @return the committed count after the repair
+     */
+    private long repair() throws IOException {
+        FileLock lock = this.channel.lock();
+        try {
+            long intact = intactRecords(); //read again under the lock, another process may have repaired it
+            if (this.header.getLong(COUNT) > intact) {
+                System.err.println(this.path + " holds " + intact + " of its " + this.header.getLong(COUNT) + " records, dropping the rest");
+                this.header.putLong(COUNT, intact);
+                this.channel.truncate(HEADER_SIZE + intact * RECORD_SIZE);
+                this.header.force();
+            }
+            return this.header.getLong(COUNT);
+        } finally {
+            lock.release();
+        }
+    }
+
+    /**
+     * intactRecords
+     * @return the number of whole records the file holds
+     */
+    private long intactRecords() throws IOException {
+        return (this.channel.size() - HEADER_SIZE) / RECORD_SIZE;
+    }
+
+    private int checksum(ByteBuffer buffer, int offset) {
+        return checksum(buffer, offset, this.crc);
+    }
+
+    private static int checksum(ByteBuffer buffer, int offset, CRC32 crc) {
+        ByteBuffer fields = buffer.duplicate();
+        fields.limit(offset + CHECKSUM).position(offset);
+        crc.reset();
+        crc.update(fields);
+        return (int) crc.getValue();
+    }
+
+    private static void writeRecord(ByteBuffer buffer, Key key, Evaluation evaluation, CRC32 crc) {
+        int offset = buffer.position();
+        buffer.putLong(key.genomeHash);
+        buffer.putLong(key.trackId);
+        buffer.putFloat(evaluation.fitness);
+        buffer.putFloat(evaluation.maxHeight);
+        buffer.putFloat(evaluation.minHeight);
+        buffer.putInt(evaluation.steps);
+        buffer.putInt(checksum(buffer, offset, crc));
+        buffer.putInt(0); //padding
+    }
+
+    private static Evaluation readEvaluation(ByteBuffer buffer, int offset) {
+        return new Evaluation(buffer.getFloat(offset + FITNESS), buffer.getFloat(offset + MAX_HEIGHT), buffer.getFloat(offset + MIN_HEIGHT), buffer.getInt(offset + STEPS));
+    }
+
+    private static long flush(FileChannel out, ByteBuffer buffer, long position) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            position += out.write(buffer, position);
+        }
+        buffer.clear();
+        return position;
+    }
+
+    private static ByteBuffer newHeader(long count, long sorted) {
+        ByteBuffer head = ByteBuffer.allocate(HEADER_SIZE);
+        head.putInt(0, MAGIC);
+        head.putInt(4, VERSION);
+        head.putLong(COUNT, count);
+        head.putLong(SORTED, sorted);
+        return head;
+    }
+
+    /**
+     * Region
+     * @description The sorted region of a file, mapped read only. It never changes once mapped and the mapping outlives
+     * the channel, so any thread can search it while the store is reloaded or compacted
+     */
+    private static class Region {
+
+        private final MappedByteBuffer[] segments;
+        private final long count;
+
+        Region(MappedByteBuffer[] segments, long count) {
+            this.segments = segments;
+            this.count = count;
+        }
+
+        /**
+         * search
+         * @description Binary searches the region with absolute reads only, which is safe from any number of threads
+         * @return the evaluation, or null if it is not in the region
+         */
+        Evaluation search(long genomeHash, long trackId) {
+            long low = 0;
+            long high = this.count - 1;
+            while (low <= high) {
+                long middle = (low + high) >>> 1;
+                ByteBuffer segment = segment(middle);
+                int offset = offset(middle);
+                int order = Long.compare(segment.getLong(offset + GENOME_HASH), genomeHash);
+                if (order == 0) {
+                    order = Long.compare(segment.getLong(offset + TRACK_ID), trackId);
+                }
+                if (order < 0) {
+                    low = middle + 1;
+                } else if (order > 0) {
+                    high = middle - 1;
+                } else {
+                    return readEvaluation(segment, offset);
+                }
+            }
+            return null;
+        }
+
+        int compare(long index, Key key) {
+            ByteBuffer segment = segment(index);
+            int offset = offset(index);
+            int order = Long.compare(segment.getLong(offset + GENOME_HASH), key.genomeHash);
+            return order != 0 ? order : Long.compare(segment.getLong(offset + TRACK_ID), key.trackId);
+        }
+
+        ByteBuffer segment(long index) {
+            return this.segments[(int) (index / SEGMENT_RECORDS)];
+        }
+
+        static int offset(long index) {
+            return (int) (index % SEGMENT_RECORDS) * RECORD_SIZE;
+        }
+
+    }
+
+    /**
+     * Key
+     * @description A genome on a track, ordered the same way as the sorted region
+     */
+    private static class Key implements Comparable<Key> {
+
+        private final long genomeHash;
+        private final long trackId;
+
+        Key(long genomeHash, long trackId) {
+            this.genomeHash = genomeHash;
+            this.trackId = trackId;
+        }
+
+        @Override
+        public int compareTo(Key other) {
+            int order = Long.compare(this.genomeHash, other.genomeHash);
+            return order != 0 ? order : Long.compare(this.trackId, other.trackId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(this.genomeHash * 31 + this.trackId);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) other;
+            return this.genomeHash == key.genomeHash && this.trackId == key.trackId;
+        }
+
+    }
+
+}
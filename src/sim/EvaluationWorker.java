@@ -0,0 +1,226 @@
+package sim;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * EvaluationWorker.java
+ * @description This class is a worker process for a DistributedEvaluator. It listens on a port, and for every
+ * coordinator that connects it evaluates the batches of genomes it is sent on its own evaluator threads, streaming each
+ * fitness score back as soon as the car dies.
+ *
+ * The protocol is big-endian binary over TCP. On connecting the worker sends MAGIC and VERSION as two ints. The
+ * coordinator then sends SETUP: the byte SETUP, the track seed as a long, Ground.maxSegments as an int,
+ * Ground.useChain and Ground.streaming as booleans, Car.maxSteps and Car.progressWindow as ints and
+ * Evaluator.prescreening as a boolean, from which the worker rebuilds the track and limits of the run. After that it
+ * sends any number of BATCH messages: the byte BATCH, the batch id and the genome count as ints, and the genomes as
+ * Population.GENOME_LENGTH floats each. For every genome
+ * the worker answers with the batch id and the index of the genome in the batch as ints, the fitness as a float, the
+ * physics steps run as an int, and the prescreen verdict and the Car limit that stopped the car as bytes, in the order
+ * the cars finish. The coordinator adds the verdicts and limits to its own counters, as the worker's are in another
+ * process. Closing the connection ends the session. The track settings and car limits are global to the process, so a
+ * worker serves coordinators of one setting at a time
+ *
+ * Usage: java -cp ... sim.EvaluationWorker --port=7341 --threads=4
+ *
+ */
+class EvaluationWorker {
+
+    static final int MAGIC = 0x45564f43; //"EVOC"
+    static final int VERSION = 6;
+    static final byte SETUP = 1;
+    static final byte BATCH = 2;
+    static final int DEFAULT_PORT = 7341;
+
+    private static final Job END = new Job(-1, -1, null); //tells an evaluator thread the session is over
+
+    private final ServerSocket server;
+    private final int threads;
+
+    /**
+     * @param port the port to listen on, or 0 for any free port
+     * @param threads the number of evaluator threads for each coordinator
+     * @throws IOException if the port cannot be opened
+     */
+    EvaluationWorker(int port, int threads) throws IOException {
+        this.server = new ServerSocket(port);
+        this.threads = threads;
+    }
+
+    /**
+     * serve
+     * @description Accepts coordinators until the worker is closed, each on a thread of its own
+     */
+    void serve() {
+        while (!this.server.isClosed()) {
+            try {
+                Socket socket = this.server.accept();
+                Thread session = new Thread(() -> handle(socket), "worker-session");
+                session.setDaemon(true);
+                session.start();
+            } catch (IOException e) {
+                if (!this.server.isClosed()) {
+                    System.err.println("Could not accept a coordinator: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * handle
+     * @description Runs one session with a coordinator
+     * @param socket the connection to the coordinator
+     */
+    private void handle(Socket socket) {
+        LinkedBlockingQueue<Job> jobs = new LinkedBlockingQueue<>();
+        ArrayList<Thread> evaluators = new ArrayList<>();
+        try (Socket connection = socket) {
+            connection.setTcpNoDelay(true); //results are small and should not wait for more to fill a packet
+            DataInputStream in = new DataInputStream(new BufferedInputStream(connection.getInputStream()));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(connection.getOutputStream()));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.flush();
+
+            if (in.readByte() != SETUP) {
+                throw new IOException("Expected a setup message");
+            }
+            long trackSeed = in.readLong();
+            Ground.maxSegments = in.readInt();
+            Ground.useChain = in.readBoolean();
+            Ground.streaming = in.readBoolean();
+            Car.maxSteps = in.readInt();
+            Car.progressWindow = in.readInt();
+            Evaluator.prescreening = in.readBoolean();
+            ArrayList<float[]> track = Ground.streaming ? null : Ground.randomTrack(new RandomSource(trackSeed)); //the track Evolution draws
+            for (int i = 0; i < this.threads; i++) {
+                Evaluator evaluator = track == null ? new Evaluator(trackSeed) : new Evaluator(track);
+                Thread thread = new Thread(() -> evaluate(evaluator, jobs, out, connection), "worker-evaluator");
+                thread.setDaemon(true);
+                thread.start();
+                evaluators.add(thread);
+            }
+
+            while (true) {
+                byte type;
+                try {
+                    type = in.readByte();
+                } catch (EOFException e) {
+                    break; //the coordinator is done
+                }
+                if (type != BATCH) {
+                    throw new IOException("Unknown message type " + type);
+                }
+                int batch = in.readInt();
+                int count = in.readInt();
+                for (int i = 0; i < count; i++) {
+                    float[] genome = new float[Population.GENOME_LENGTH];
+                    for (int k = 0; k < genome.length; k++) {
+                        genome[k] = in.readFloat();
+                    }
+                    jobs.add(new Job(batch, i, genome));
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Session ended: " + e.getMessage());
+        } finally {
+            jobs.clear();
+            for (int i = 0; i < evaluators.size(); i++) {
+                jobs.add(END);
+            }
+        }
+    }
+
+    /**
+     * evaluate
+     * @description The loop of an evaluator thread, which runs jobs and writes their results until the session ends
+     */
+    private static void evaluate(Evaluator evaluator, LinkedBlockingQueue<Job> jobs, DataOutputStream out, Socket connection) {
+        try {
+            while (true) {
+                Job job = jobs.take();
+                if (job == END) {
+                    return;
+                }
+                float fitness = evaluator.evaluate(job.genome);
+                synchronized (out) {
+                    out.writeInt(job.batch);
+                    out.writeInt(job.index);
+                    out.writeFloat(fitness);
+                    out.writeInt(evaluator.getSteps());
+                    out.writeByte(evaluator.getVerdict());
+                    out.writeByte(evaluator.getLimit());
+                    out.flush();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            closeQuietly(connection); //the coordinator is gone, so the reader stops too
+        }
+    }
+
+    private static void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException ignored) {
+            //already closed
+        }
+    }
+
+    int getPort() {
+        return this.server.getLocalPort();
+    }
+
+    /**
+     * close
+     * @description Stops accepting coordinators
+     */
+    void close() throws IOException {
+        this.server.close();
+    }
+
+    /**
+     * Job
+     * @description One genome of a batch
+     */
+    private static class Job {
+
+        final int batch;
+        final int index;
+        final float[] genome;
+
+        Job(int batch, int index, float[] genome) {
+            this.batch = batch;
+            this.index = index;
+            this.genome = genome;
+        }
+
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = DEFAULT_PORT;
+        int threads = ParallelEvaluator.defaultThreads();
+        for (String arg : args) {
+            if (arg.startsWith("--port=")) {
+                port = Integer.parseInt(arg.substring("--port=".length()));
+            } else if (arg.startsWith("--threads=")) {
+                threads = Integer.parseInt(arg.substring("--threads=".length()));
+            } else {
+                throw new IllegalArgumentException("Expected --port=n or --threads=n but got " + arg);
+            }
+        }
+        EvaluationWorker worker = new EvaluationWorker(port, threads);
+        System.out.println("Evaluating on port " + worker.getPort() + " with " + threads + " threads");
+        worker.serve();
+    }
+
+}
@@ -0,0 +1,348 @@
+package sim;
+
+import org.jbox2d.common.Vec2;
+import org.jbox2d.dynamics.World;
+
+import java.util.ArrayList;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Evaluator.java
+ * @description This class evaluates cars without any rendering, stepping the physics world as fast as the CPU allows
+ *
+ */
+class Evaluator {
+
+    //world
+    static final Vec2 GRAVITY = new Vec2(0.0F, -9.81F);
+    static final int FPS = 60;
+    static final float TIME_STEP = 1.0F / FPS;
+    static final int VELOCITY_ITERATIONS = 8;
+    static final int POSITION_ITERATIONS = 3;
+
+    static boolean prescreening = true; //give hopeless genomes a fitness without simulating them, see CarDefinition.prescreen
+    static final int NOT_PRESCREENED = -1; //the verdict of a genome evaluated with prescreening off
+    private static final float START_DISTANCE = 1.0F; //the fitness of a car that never moves from where it is built
+
+    //the genomes prescreened and rejected for each verdict, over every evaluator of the process
+    private static final LongAdder prescreened = new LongAdder();
+    private static final LongAdder[] rejected = new LongAdder[CarDefinition.VERDICTS];
+
+    static {
+        for (int i = 0; i < rejected.length; i++) {
+            rejected[i] = new LongAdder();
+        }
+    }
+
+    private ArrayList<float[]> track; //the tile angles of the track, or null when the track is streamed
+    private long trackSeed; //the seed of the streamed track
+    private StreamingGround stream; //the streamed ground of the current world
+    private long trackId; //identifies the track in the fitness cache
+    private FitnessCache cache; //the fitness of genomes already evaluated, or null to always simulate
+    private EvaluationStore store; //the evaluations of every run, or null to only use the cache
+
+    private final float[] row = new float[Population.GENOME_LENGTH]; //the genome copied out of a generation's genes
+    private int steps; //the number of steps the last car survived
+    private boolean finished; //whether the last car ran until it died, rather than to a step limit
+    private int verdict; //the prescreen verdict of the last genome
+    private int limit; //the Car limit that stopped the last car
+
+    /**
+     * @param track the tile angles of the track, in the format used by Ground.customGround
+     */
+    Evaluator(ArrayList<float[]> track) {
+        this.track = track;
+        this.trackId = FitnessCache.trackId(track);
+    }
+
+    /**
+     * @param trackSeed the seed of an endless track that is streamed in chunks while the car drives
+     * @throws IllegalStateException see checkStreaming
+     */
+    Evaluator(long trackSeed) {
+        checkStreaming();
+        this.trackSeed = trackSeed;
+        this.trackId = FitnessCache.trackId(trackSeed);
+    }
+
+    /**
+     * checkStreaming
+     * @throws IllegalStateException if Ground.streaming is off, since the cars would stop at its finish line, or
+     * Car.maxSteps is 0, since nothing would stop a car that keeps making progress on an endless track
+     */
+    static void checkStreaming() {
+        if (!Ground.streaming || Car.maxSteps <= 0) {
+            throw new IllegalStateException("A streamed track needs Ground.streaming on and a Car.maxSteps limit");
+        }
+    }
+
+    /**
+     * evaluate
+     * @description Builds a car from the given genome and runs it until it dies
+     * @param genome the genome of the car
+     * @return the fitness score of the car
+     */
+    float evaluate(float[] genome) {
+        return screen(genome, 0);
+    }
+
+    /**
+     * screen
+     * @description Builds a car from the given genome and runs it until it dies or has run stepLimit steps. The steps
+     * are the same as the first steps of a full evaluation, so a car that dies within them has its full fitness, and
+     * otherwise the distance it has reached is a lower bound of its full fitness. Only full fitness scores are cached
+     * and stored. With prescreening on, a genome CarDefinition.prescreen rejects is given its rejectedFitness without
+     * building a world
+     * @param genome the genome of the car
+     * @param stepLimit the most steps to run, or 0 to run until the car dies
+     * @return the fitness score of the car, full if isFinished is true after the call and partial otherwise
+     */
+    float screen(float[] genome, int stepLimit) {
+        Float known = lookup(genome);
+        if (known != null) {
+            return known;
+        }
+        return simulate(genome, stepLimit);
+    }
+
+    /**
+     * simulate
+     * @description Builds the car and runs it, recording it if it ran until it died
+     */
+    private float simulate(float[] genome, int stepLimit) {
+        World world = createWorld();
+        Car car = new Car(genome, world, RandomSource.forGenome(genome));
+        float fitness = run(car, world, stepLimit);
+        if (this.finished) {
+            record(genome, car, this.steps);
+        }
+        return fitness;
+    }
+
+    /**
+     * lookup
+     * @description Gives the genome its fitness without simulating it if it can: the rejectedFitness of a genome
+     * prescreening rejects, or a fitness the cache or store already holds. Sets the verdict and clears the steps and
+     * limit of the last car
+     * @param genome the genome of the car
+     * @return the fitness score of the car, or null if it has to be simulated
+     */
+    Float lookup(float[] genome) {
+        this.finished = true;
+        this.steps = 0; //nothing is simulated unless the caller goes on to
+        this.verdict = NOT_PRESCREENED;
+        this.limit = Car.NO_LIMIT;
+        if (prescreening) {
+            this.verdict = CarDefinition.prescreen(genome);
+            countPrescreen(this.verdict);
+            if (this.verdict != CarDefinition.VIABLE) {
+                return rejectedFitness(this.verdict);
+            }
+        }
+        if (this.cache != null) {
+            Float known = this.cache.get(this.trackId, genome);
+            if (known != null) {
+                return known;
+            }
+        }
+        if (this.store != null) {
+            Evaluation known = this.store.get(EvaluationStore.genomeHash(genome), this.trackId);
+            if (known != null) {
+                remember(genome, known.fitness);
+                return known.fitness;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * record
+     * @description Adds a car that was simulated until it died to the cache and store
+     * @param genome the genome of the car
+     * @param car the dead car
+     * @param steps the steps the car survived
+     */
+    void record(float[] genome, Car car, int steps) {
+        float fitness = car.getFitnessScore();
+        if (this.store != null) {
+            this.store.put(EvaluationStore.genomeHash(genome), this.trackId, new Evaluation(fitness, car.getMaxHeight(), car.getMinHeight(), steps));
+        }
+        remember(genome, fitness);
+    }
+
+    /**
+     * screen
+     * @description Screens a car straight from the genes of a generation, see screen(float[], int). The genome is
+     * copied into a buffer the evaluator reuses, so only the car itself is allocated
+     * @param genes the genes of the generation
+     * @param offset the index of the car's first gene
+     * @param stepLimit the most steps to run, or 0 to run until the car dies
+     * @return the fitness score of the car, full if isFinished is true after the call and partial otherwise
+     */
+    float screen(float[] genes, int offset, int stepLimit) {
+        System.arraycopy(genes, offset, this.row, 0, this.row.length);
+        return screen(this.row, stepLimit);
+    }
+
+    /**
+     * rerun
+     * @description Runs a car that screen only ran part of the way to the end. Its genome was already prescreened and
+     * missed the cache and store when it was screened, so it is only simulated and recorded, and counted once
+     * @param genes the genes of the generation
+     * @param offset the index of the car's first gene
+     * @return the full fitness score of the car
+     */
+    float rerun(float[] genes, int offset) {
+        System.arraycopy(genes, offset, this.row, 0, this.row.length);
+        this.limit = Car.NO_LIMIT;
+        return simulate(this.row, 0);
+    }
+
+    private void remember(float[] genome, float fitness) {
+        if (this.cache != null) {
+            this.cache.put(this.trackId, genome, fitness);
+        }
+    }
+
+    /**
+     * evaluate
+     * @description Builds a car from the given definition and runs it until it dies
+     * @param def the definition of the car
+     * @return the fitness score of the car
+     */
+    float evaluate(CarDefinition def) {
+        World world = createWorld();
+        return run(new Car(def, world), world, 0);
+    }
+
+    /**
+     * createWorld
+     * @description Creates a fresh world containing only the track, so every car is evaluated from the same state. A
+     * streamed track builds its chunks after the car, which changes the order of the default broadphase, so it always
+     * uses a TrackBroadPhase to score a car as a BatchEvaluator does
+     * @return the new world
+     */
+    private World createWorld() {
+        World world = this.track != null ? new World(GRAVITY) : TrackBroadPhase.createWorld();
+        if (this.track != null) {
+            Ground ground = new Ground(world);
+            ground.createTrack(this.track);
+        } else {
+            this.stream = new StreamingGround(world, this.trackSeed);
+        }
+        return world;
+    }
+
+    /**
+     * run
+     * @description Steps the world in a tight loop until the car dies or reaches the step limit
+     * @param car the car to run
+     * @param world the world containing the car
+     * @param stepLimit the most steps to run, or 0 to run until the car dies
+     * @return the fitness score of the car
+     */
+    private float run(Car car, World world, int stepLimit) {
+        this.steps = 0;
+        do {
+            if (this.stream != null) {
+                float x = car.getPosition().x;
+                this.stream.update(x);
+            }
+            world.step(TIME_STEP, VELOCITY_ITERATIONS, POSITION_ITERATIONS);
+            this.steps++;
+            this.finished = car.checkDeath();
+        } while (!this.finished && (stepLimit == 0 || this.steps < stepLimit));
+        this.stream = null;
+        this.limit = car.getLimit();
+        return car.getFitnessScore();
+    }
+
+    /**
+     * rejectedFitness
+     * @param verdict the verdict of CarDefinition.prescreen on a hopeless genome
+     * @return the fitness the genome is given instead of being simulated: the distance of a car that never moves for a
+     * car with no wheels, about what the simulation gives it, and no distance for a car that cannot be built or whose
+     * chassis has no centre of mass, which the simulation scores 0
+     */
+    static float rejectedFitness(int verdict) {
+        return verdict == CarDefinition.NO_WHEELS ? START_DISTANCE : 0;
+    }
+
+    /**
+     * countPrescreen
+     * @description Adds a prescreened genome to the counters of the process. Genomes prescreened on an
+     * EvaluationWorker are counted on the coordinator through this as well
+     * @param verdict the verdict of CarDefinition.prescreen on the genome, or NOT_PRESCREENED to count nothing
+     */
+    static void countPrescreen(int verdict) {
+        if (verdict == NOT_PRESCREENED) {
+            return;
+        }
+        prescreened.increment();
+        if (verdict != CarDefinition.VIABLE) {
+            rejected[verdict].increment();
+        }
+    }
+
+    /**
+     * getPrescreened
+     * @return the number of genomes prescreened by every evaluator of the process
+     */
+    static long getPrescreened() {
+        return prescreened.sum();
+    }
+
+    /**
+     * getRejected
+     * @param verdict a verdict of CarDefinition.prescreen other than VIABLE
+     * @return the number of genomes rejected with the verdict by every evaluator of the process
+     */
+    static long getRejected(int verdict) {
+        return rejected[verdict].sum();
+    }
+
+    /**
+     * setCache
+     * @param cache the cache to look genomes up in before simulating them, shared with the other evaluators of the run
+     */
+    void setCache(FitnessCache cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * setStore
+     * @param store the store to look genomes up in after the cache and to record every simulated car in
+     */
+    void setStore(EvaluationStore store) {
+        this.store = store;
+    }
+
+    int getSteps() {
+        return this.steps;
+    }
+
+    /**
+     * getVerdict
+     * @return the verdict of CarDefinition.prescreen on the last genome, or NOT_PRESCREENED with prescreening off
+     */
+    int getVerdict() {
+        return this.verdict;
+    }
+
+    /**
+     * getLimit
+     * @return the Car limit that stopped the last car, or Car.NO_LIMIT if it was not simulated or died on its own
+     */
+    int getLimit() {
+        return this.limit;
+    }
+
+    /**
+     * isFinished
+     * @return whether the last car was run until it died, so its fitness score is the full one
+     */
+    boolean isFinished() {
+        return this.finished;
+    }
+
+}
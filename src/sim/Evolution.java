@@ -0,0 +1,317 @@
+package sim;
+
+import org.jbox2d.dynamics.World;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Evolution.java
+ * @description This class runs the genetic algorithm without a window: it evaluates each generation with a
+ * ParallelEvaluator, or on worker processes with a DistributedEvaluator, and breeds the next one with a GeneticAlgorithm. Every random choice is drawn from the seed of the
+ * run, so the same seed always evolves the same cars. The track is drawn from the run seed too, unless a track seed is
+ * given, so runs of different seeds can share a track and the evaluations stored for it. With Ground.streaming on the
+ * cars drive an endless StreamingGround track of the track seed instead. With batching on, each evaluator thread runs its
+ * share of a generation in one world with a BatchEvaluator
+ *
+ */
+class Evolution {
+
+    static boolean batching = false; //evaluate with a BatchEvaluator instead of a ParallelEvaluator, see BatchEvaluator
+
+    private GenerationEvaluator evaluator;
+    private FitnessCache cache; //null when caching is off
+    private GeneticAlgorithm algorithm;
+    private long seed;
+
+    //null when every car is simulated
+    private SurrogateModel surrogate;
+    private double surrogateFraction; //the fraction of each generation simulated for being predicted fittest
+    private double explorationFraction; //the fraction simulated at random from the rest
+    private RandomSource surrogateRandom;
+    private ArrayList<Double> predictionErrors = new ArrayList<>();
+    private long carsPredicted = 0;
+
+    private int generation = 0;
+    private long carsEvaluated = 0;
+    private Population population; //the generation being evaluated next
+    private int[] everyCar; //0 to size - 1, for evaluating the whole generation
+    private float[] fitness; //the fitness scores the evaluator fills in
+
+    //reused by every generation the surrogate model picks the cars to simulate in
+    private int[] cars;
+    private float[] predicted;
+    private long[] order;
+    private float bestFitness = 0;
+
+    /**
+     * @param seed the seed of the run, which the track, the first generation and the algorithm are drawn from
+     * @param populationSize the number of cars in each generation
+     * @param selectionType the selection method, GeneticAlgorithm.ROULETTE or GeneticAlgorithm.TOURNAMENT
+     * @param mutationRate the chance of each gene mutating
+     * @param mutationEffect the largest change a mutation makes to a gene
+     * @param threads the number of evaluator threads, and of threads breeding each generation
+     * @param cacheSize the most genomes to remember the fitness of, or 0 to simulate every genome
+     * @param store the evaluation store shared with other runs, or null to not use one
+     */
+    Evolution(long seed, int populationSize, int selectionType, double mutationRate, double mutationEffect, int threads, int cacheSize, EvaluationStore store) {
+        this(seed, populationSize, selectionType, mutationRate, mutationEffect, threads, cacheSize, store, null);
+    }
+
+    /**
+     * @param seed the seed of the run, which the track, the first generation and the algorithm are drawn from
+     * @param populationSize the number of cars in each generation
+     * @param selectionType the selection method, GeneticAlgorithm.ROULETTE or GeneticAlgorithm.TOURNAMENT
+     * @param mutationRate the chance of each gene mutating
+     * @param mutationEffect the largest change a mutation makes to a gene
+     * @param threads the number of evaluator threads, and of threads breeding each generation
+     * @param cacheSize the most genomes to remember the fitness of, or 0 to simulate every genome
+     * @param store the evaluation store shared with other runs, or null to not use one
+     * @param workers the addresses of EvaluationWorker processes to evaluate on, or null to evaluate on threads of this
+     * process. The workers simulate every genome, so the cache and store are not used with them
+     */
+    Evolution(long seed, int populationSize, int selectionType, double mutationRate, double mutationEffect, int threads, int cacheSize, EvaluationStore store, List<InetSocketAddress> workers) {
+        this(seed, seed, populationSize, selectionType, mutationRate, mutationEffect, threads, cacheSize, store, workers);
+    }
+
+    /**
+     * @param seed the seed of the run, which the first generation and the algorithm are drawn from
+     * @param trackSeed the seed the track is drawn from, the run seed for the track of the run's own
+     * @param populationSize the number of cars in each generation
+     * @param selectionType the selection method, GeneticAlgorithm.ROULETTE or GeneticAlgorithm.TOURNAMENT
+     * @param mutationRate the chance of each gene mutating
+     * @param mutationEffect the largest change a mutation makes to a gene
+     * @param threads the number of evaluator threads, and of threads breeding each generation
+     * @param cacheSize the most genomes to remember the fitness of, or 0 to simulate every genome
+     * @param store the evaluation store shared with other runs, or null to not use one
+     * @param workers the addresses of EvaluationWorker processes to evaluate on, or null to evaluate on threads of this
+     * process. The workers simulate every genome, so the cache and store are not used with them
+     */
+    Evolution(long seed, long trackSeed, int populationSize, int selectionType, double mutationRate, double mutationEffect, int threads, int cacheSize, EvaluationStore store, List<InetSocketAddress> workers) {
+        this.seed = seed;
+        RandomSource random = new RandomSource(seed);
+        ArrayList<float[]> track = Ground.randomTrack(random); //drawn even when it is not the track of the run, to keep the stream aligned
+        if (trackSeed != seed) {
+            track = Ground.randomTrack(new RandomSource(trackSeed)); //the same track a run of that seed draws
+        }
+        if (Ground.streaming) {
+            Evaluator.checkStreaming(); //before any worker is connected to
+        }
+        if (workers != null) {
+            this.evaluator = new DistributedEvaluator(workers, trackSeed, DistributedEvaluator.DEFAULT_BATCH_SIZE, DistributedEvaluator.DEFAULT_WINDOW);
+        } else {
+            if (cacheSize > 0) {
+                this.cache = new FitnessCache(cacheSize);
+            }
+            if (batching) {
+                this.evaluator = Ground.streaming ? new BatchEvaluator(trackSeed, threads, this.cache, store) : new BatchEvaluator(track, threads, this.cache, store);
+            } else if (Ground.streaming) {
+                this.evaluator = new ParallelEvaluator(trackSeed, threads, this.cache, store);
+            } else {
+                this.evaluator = new ParallelEvaluator(track, threads, this.cache, store);
+            }
+        }
+        this.algorithm = new GeneticAlgorithm(selectionType, mutationRate, mutationEffect, random);
+        this.algorithm.setThreads(threads);
+        this.population = randomPopulation(populationSize, random);
+        this.everyCar = new int[populationSize];
+        for (int i = 0; i < populationSize; i++) {
+            this.everyCar[i] = i;
+        }
+        this.fitness = new float[populationSize];
+    }
+
+    /**
+     * randomPopulation
+     * @description Draws random cars with CarDefinition.createRandomCar and takes their genomes
+     * @param populationSize the number of cars
+     * @param random the random source to draw the cars from
+     * @return a population holding the genomes of the cars
+     */
+    static Population randomPopulation(int populationSize, RandomSource random) {
+        World world = new World(Evaluator.GRAVITY); //a car has to be built to write its genome
+        Population population = new Population(populationSize);
+        for (int i = 0; i < populationSize; i++) {
+            Car car = new Car(CarDefinition.createRandomCar(random), world);
+            population.setGenome(i, car.getGenome());
+            car.kill();
+        }
+        return population;
+    }
+
+    /**
+     * step
+     * @description Evaluates the current generation and breeds the next one from it. The cars are evaluated straight
+     * from the genes of the population, so a generation allocates nothing per car outside the simulation itself
+     */
+    void step() {
+        int size = this.population.size();
+        float[] genes = this.population.genes();
+        if (this.surrogate != null && this.surrogate.size() >= size) {
+            evaluateWithSurrogate(genes);
+        } else {
+            this.evaluator.evaluate(genes, this.everyCar, size, this.fitness);
+            for (int i = 0; i < size; i++) {
+                this.population.setFitness(i, this.fitness[i]);
+                this.bestFitness = Math.max(this.bestFitness, this.fitness[i]);
+                if (this.surrogate != null) {
+                    this.surrogate.add(genes, i * Population.GENOME_LENGTH, this.fitness[i]);
+                }
+            }
+            this.carsEvaluated += size;
+        }
+        this.algorithm.nextGeneration(this.population);
+        this.generation++;
+    }
+
+    /**
+     * evaluateWithSurrogate
+     * @description Predicts the fitness of every car, simulates the cars predicted fittest and a random slice of the
+     * rest, and gives the other cars their predicted fitness. The simulated cars train the model and measure its error
+     * @param genes the genes of the generation
+     */
+    private void evaluateWithSurrogate(float[] genes) {
+        int size = this.population.size();
+        float[] predicted = this.predicted;
+        long[] order = this.order;
+        for (int i = 0; i < size; i++) {
+            predicted[i] = this.surrogate.predict(genes, i * Population.GENOME_LENGTH);
+            order[i] = Util.rankKey(predicted[i], i);
+        }
+        Arrays.sort(order, 0, size);
+        int[] cars = this.cars;
+        for (int i = 0; i < size; i++) {
+            cars[i] = Util.rankIndex(order[i]);
+        }
+        int top = Math.min(size, (int) Math.ceil(this.surrogateFraction * size));
+        int explored = Math.min(size - top, (int) Math.ceil(this.explorationFraction * size));
+        for (int i = top; i < top + explored; i++) { //a partial shuffle of the rest picks the exploration slice
+            int j = i + this.surrogateRandom.nextInt(size - i);
+            int swap = cars[i];
+            cars[i] = cars[j];
+            cars[j] = swap;
+        }
+
+        int simulated = top + explored;
+        this.evaluator.evaluate(genes, cars, simulated, this.fitness);
+        for (int i = 0; i < size; i++) {
+            this.population.setFitness(i, predicted[i]);
+        }
+        double error = 0;
+        for (int i = 0; i < simulated; i++) {
+            this.population.setFitness(cars[i], this.fitness[i]);
+            this.bestFitness = Math.max(this.bestFitness, this.fitness[i]);
+            this.surrogate.add(genes, cars[i] * Population.GENOME_LENGTH, this.fitness[i]);
+            error += Math.abs(this.fitness[i] - predicted[cars[i]]);
+        }
+        this.predictionErrors.add(simulated == 0 ? 0 : error / simulated);
+        this.carsEvaluated += simulated;
+        this.carsPredicted += size - simulated;
+    }
+
+    /**
+     * setSurrogate
+     * @description Trains a SurrogateModel on every simulated car, and once it holds a generation's worth of cars only
+     * simulates part of each generation, giving the rest their predicted fitness
+     * @param surrogateFraction the fraction of each generation simulated for being predicted fittest
+     * @param explorationFraction the fraction of each generation simulated at random from the rest, so the model also
+     * learns about cars it rates poorly
+     */
+    void setSurrogate(double surrogateFraction, double explorationFraction) {
+        this.surrogate = new SurrogateModel(SurrogateModel.DEFAULT_NEIGHBOURS, SurrogateModel.DEFAULT_CAPACITY);
+        this.cars = new int[this.population.size()];
+        this.predicted = new float[this.population.size()];
+        this.order = new long[this.population.size()];
+        this.surrogateFraction = surrogateFraction;
+        this.explorationFraction = explorationFraction;
+        this.surrogateRandom = new RandomSource(RandomSource.mix(this.seed)); //a stream of its own, so the algorithm's is unchanged
+    }
+
+    /**
+     * getPredictionErrors
+     * @return the mean absolute difference between the predicted and simulated fitness of the simulated cars, for
+     * each generation the surrogate model chose the cars to simulate in
+     */
+    ArrayList<Double> getPredictionErrors() {
+        return this.predictionErrors;
+    }
+
+    /**
+     * getCarsPredicted
+     * @return the number of cars given their predicted fitness instead of being simulated
+     */
+    long getCarsPredicted() {
+        return this.carsPredicted;
+    }
+
+    /**
+     * setScreening
+     * @description Screens every generation with a short run before running the cars furthest along to the end, see
+     * ParallelEvaluator
+     * @param screenSteps the steps every car is run for first, or 0 to run every car to the end straight away
+     * @param screenFraction the fraction of each generation run to the end after screening
+     */
+    void setScreening(int screenSteps, double screenFraction) {
+        if (!(this.evaluator instanceof ParallelEvaluator)) {
+            throw new IllegalStateException("Screening is only supported when evaluating car by car in this process");
+        }
+        ((ParallelEvaluator) this.evaluator).setScreening(screenSteps, screenFraction);
+    }
+
+    /**
+     * setTimeout
+     * @description Sets how long a worker may go without answering before its cars are sent to the other workers, see
+     * DistributedEvaluator
+     * @param timeout the timeout in milliseconds, or 0 to wait for ever
+     */
+    void setTimeout(int timeout) {
+        if (!(this.evaluator instanceof DistributedEvaluator)) {
+            throw new IllegalStateException("A timeout is only supported when evaluating on workers");
+        }
+        ((DistributedEvaluator) this.evaluator).setTimeout(timeout);
+    }
+
+    /**
+     * getScreenedOut
+     * @return the number of cars given their screening fitness instead of running to the end
+     */
+    long getScreenedOut() {
+        return this.evaluator instanceof ParallelEvaluator ? ((ParallelEvaluator) this.evaluator).getScreenedOut() : 0;
+    }
+
+    /**
+     * shutdown
+     * @description Stops the evaluator and algorithm threads
+     */
+    void shutdown() {
+        this.evaluator.shutdown();
+        this.algorithm.shutdown();
+    }
+
+    int getGeneration() {
+        return this.generation;
+    }
+
+    long getCarsEvaluated() {
+        return this.carsEvaluated;
+    }
+
+    long getSteps() {
+        return this.evaluator.getSteps();
+    }
+
+    /**
+     * getCache
+     * @return the fitness cache of the run, or null when caching is off
+     */
+    FitnessCache getCache() {
+        return this.cache;
+    }
+
+    float getBestFitness() {
+        return this.bestFitness;
+    }
+
+}
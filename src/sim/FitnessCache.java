@@ -0,0 +1,144 @@
+package sim;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * FitnessCache.java
+ * @description This class remembers the fitness of genomes already evaluated during a run, so a genome the algorithm
+ * creates again (a child that did not mutate, or a crossover that copied a parent) is not simulated a second time.
+ * Genes are quantized before they are compared, and the least recently used entries are evicted once the cache is full.
+ * The cache is shared by every evaluator thread of a run
+ *
+ */
+class FitnessCache {
+
+    static final float QUANTUM = 1e-5F; //genes closer than this are treated as the same gene
+
+    private final LinkedHashMap<Key, Float> entries;
+    private long hits = 0;
+    private long misses = 0;
+
+    /**
+     * @param capacity the most genomes the cache remembers
+     */
+    FitnessCache(int capacity) {
+        this.entries = new LinkedHashMap<Key, Float>(16, 0.75F, true) { //access order, so the eldest entry is the least recently used
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Float> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * get
+     * @param trackId the track the genome was evaluated on
+     * @param genome the genome of the car
+     * @return the fitness of the genome on the track, or null if it has not been evaluated
+     */
+    synchronized Float get(long trackId, float[] genome) {
+        Float fitness = this.entries.get(new Key(trackId, genome));
+        if (fitness == null) {
+            this.misses++;
+        } else {
+            this.hits++;
+        }
+        return fitness;
+    }
+
+    /**
+     * put
+     * @param trackId the track the genome was evaluated on
+     * @param genome the genome of the car
+     * @param fitness the fitness of the genome on the track
+     */
+    synchronized void put(long trackId, float[] genome, float fitness) {
+        this.entries.put(new Key(trackId, genome), fitness);
+    }
+
+    synchronized long getHits() {
+        return this.hits;
+    }
+
+    synchronized long getMisses() {
+        return this.misses;
+    }
+
+    synchronized int size() {
+        return this.entries.size();
+    }
+
+    /**
+     * trackId
+     * @description Hashes the tile angles of a track together with the ground settings and car limits a car is scored
+     * under, so the same track built as tiles or as a chain, or with a different finish line or step limit, is a
+     * different track
+     * @param track the tile angles of a track, in the format used by Ground.customGround
+     * @return a hash identifying the track
+     */
+    static long trackId(ArrayList<float[]> track) {
+        long hash = RandomSource.mix(Ground.maxSegments + (Ground.useChain ? 1L << 32 : 0) + limits()) + track.size();
+        for (float[] tile : track) {
+            for (float angle : tile) {
+                hash = RandomSource.mix(hash + Float.floatToIntBits(angle));
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * trackId
+     * @description Hashes the seed of a streamed track together with the car limits. A streamed track has no end, so
+     * unlike a track of tiles it does not depend on Ground.maxSegments
+     * @param trackSeed the seed of a streamed track
+     * @return a hash identifying the track
+     */
+    static long trackId(long trackSeed) {
+        return RandomSource.mix(trackSeed + RandomSource.mix(limits()));
+    }
+
+    private static long limits() {
+        return RandomSource.mix(Car.maxSteps + ((long) Car.progressWindow << 32));
+    }
+
+    /**
+     * Key
+     * @description A quantized genome on a track
+     */
+    private static class Key {
+
+        private final long trackId;
+        private final int[] genes;
+        private final int hash;
+
+        Key(long trackId, float[] genome) {
+            this.trackId = trackId;
+            this.genes = new int[genome.length];
+            long hash = trackId;
+            for (int i = 0; i < genome.length; i++) {
+                this.genes[i] = Math.round(genome[i] / QUANTUM);
+                hash = RandomSource.mix(hash + this.genes[i]);
+            }
+            this.hash = (int) (hash ^ (hash >>> 32));
+        }
+
+        @Override
+        public int hashCode() {
+            return this.hash;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) other;
+            return this.trackId == key.trackId && Arrays.equals(this.genes, key.genes);
+        }
+
+    }
+
+}
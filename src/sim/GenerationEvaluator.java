@@ -0,0 +1,33 @@
+package sim;
+
+/**
+ * GenerationEvaluator.java
+ * @description An evaluator of whole generations, which Evolution breeds against. The genomes may be evaluated on the
+ * threads of this process or on worker processes, but the fitness of a genome only depends on the track and the genome
+ *
+ */
+interface GenerationEvaluator {
+
+    /**
+     * evaluate
+     * @description Evaluates cars of a generation straight from its genes, without copying them out
+     * @param genes the genes of the generation, car i in the Population.GENOME_LENGTH genes from i * GENOME_LENGTH
+     * @param cars the indices of the cars to evaluate
+     * @param count the number of cars to evaluate, from the start of cars
+     * @param fitness receives the fitness score of cars[i] at fitness[i]
+     */
+    void evaluate(float[] genes, int[] cars, int count, float[] fitness);
+
+    /**
+     * getSteps
+     * @return the number of physics steps run since this evaluator was created
+     */
+    long getSteps();
+
+    /**
+     * shutdown
+     * @description Stops the threads of the evaluator
+     */
+    void shutdown();
+
+}
@@ -0,0 +1,496 @@
+package sim;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntConsumer;
+
+/**
+ * GeneticAlgorithm.java
+ * @author Kevin Chik and Anthony Lai
+ * @description This class breeds the next generation of cars from the genomes and fitness scores of the current one.
+ * The operators read the current generation of a Population and write the children straight into its next generation.
+ * Each operator splits the population into chunks of a fixed size and runs them on a ForkJoinPool, every chunk drawing
+ * from its own stream derived from the operator's seed, so a seed breeds the same children on any number of threads
+ */
+class GeneticAlgorithm {
+
+    static final int ROULETTE = 0;
+    static final int TOURNAMENT = 1;
+    static final int DEFAULT_TOURNAMENT_SIZE = 2;
+    static final int CHUNK_SIZE = 4096; //the cars, or pairs of children, handled by one task
+
+    private static final double ZERO_FITNESS_KEY = 1e300; //above the key of any car that scored, so those are drawn first
+
+    private int selectionType; //0- Roulette //1 - Tournament
+    private double mutationRate;
+    private double mutationEffect;
+    private int tournamentSize = DEFAULT_TOURNAMENT_SIZE;
+    private RandomSource random; //draws one seed per operator, which the chunks derive their streams from
+    private ForkJoinPool forkJoinPool = ForkJoinPool.commonPool();
+    private LongAdder repairs = new LongAdder(); //children whose chassis had to be repaired
+
+    //reused between generations, sized for the population
+    private double[] keys = new double[0]; //the roulette key of each car
+    private int[] order = new int[0]; //the cars, ordered by roulette key up to the parents
+    private int[] parents = new int[0];
+    private int[] pairs = new int[0]; //the parents of each pair of children, two entries per pair
+    private boolean[] isParent = new boolean[0];
+    private float[] vertices = new float[0]; //the chassis vertices of each parent, as written by CarDefinition.toVertices
+
+    /**
+     * @param selectionType the selection method, ROULETTE or TOURNAMENT
+     * @param mutationRate the chance of each gene mutating
+     * @param mutationEffect the largest change a mutation makes to a gene
+     * @param random the random source of the algorithm
+     */
+    GeneticAlgorithm(int selectionType, double mutationRate, double mutationEffect, RandomSource random) {
+        this.selectionType = selectionType;
+        this.mutationRate = mutationRate;
+        this.mutationEffect = mutationEffect;
+        this.random = random;
+    }
+
+    /**
+     * nextGeneration
+     * selects parents with the configured method, breeds the next generation from them and makes it the current one
+     * @param population the population, with the fitness scores of the current generation
+     */
+    void nextGeneration(Population population) {
+        int[] parents;
+        if (selectionType == TOURNAMENT) {
+            parents = tournamentSelection(population);
+        } else {
+            parents = rouletteSelection(population);
+        }
+        crossover(population, parents);
+        mutation(population);
+        population.swap();
+    }
+
+    /**
+     * rouletteSelection
+     * determines parents for next generation, each drawn with a chance proportional to its fitness score from the cars
+     * not drawn yet. Every car gets the key -ln(u) / fitness for a uniform u, and the cars with the smallest keys are
+     * exactly a sequence of such draws, so the keys are drawn in parallel and the parents found with one O(n) selection.
+     * Cars that scored nothing are drawn uniformly once every car that scored has been
+     * @param population the current generation and its fitness scores
+     * @return the indices of the parents, in the first population.size() / 2 elements
+     */
+    int[] rouletteSelection(Population population){
+        int populationSize = population.size();
+        double[] distance = population.fitness();
+        ensureCapacity(populationSize);
+        long seed = random.nextLong();
+        forEachChunk(chunks(populationSize), chunk -> {
+            RandomSource stream = RandomSource.forChunk(seed, chunk);
+            int end = Math.min(populationSize, (chunk + 1) * CHUNK_SIZE);
+            for (int i = chunk * CHUNK_SIZE; i < end; i++) {
+                double u = 1 - stream.nextDouble(); //in (0, 1], so the log is finite
+                if (distance[i] > 0) {
+                    keys[i] = Math.min(-Math.log(u) / distance[i], ZERO_FITNESS_KEY);
+                } else {
+                    keys[i] = ZERO_FITNESS_KEY * (1 + u);
+                }
+                order[i] = i;
+            }
+        });
+        int parentCount = populationSize / 2;
+        selectSmallest(populationSize, parentCount);
+        System.arraycopy(order, 0, parents, 0, parentCount);
+        return parents;
+    }
+
+    /**
+     * selectSmallest
+     * @description Partially sorts order so its first count cars have the smallest keys, ties going to the lower index
+     */
+    private void selectSmallest(int size, int count) {
+        int left = 0;
+        int right = size - 1;
+        int target = count - 1;
+        while (left < right && target >= 0) {
+            int pivot = order[(left + right) >>> 1];
+            int i = left;
+            int j = right;
+            while (i <= j) {
+                while (before(order[i], pivot)) {
+                    i++;
+                }
+                while (before(pivot, order[j])) {
+                    j--;
+                }
+                if (i <= j) {
+                    int temp = order[i];
+                    order[i++] = order[j];
+                    order[j--] = temp;
+                }
+            }
+            if (target <= j) {
+                right = j;
+            } else if (target >= i) {
+                left = i;
+            } else {
+                break; //the target holds the pivot, which is in place
+            }
+        }
+    }
+
+    private boolean before(int car, int other) {
+        return keys[car] < keys[other] || (keys[car] == keys[other] && car < other);
+    }
+
+    /**
+     * tournamentSelection
+     * determines parents for next generation, each the fittest of tournamentSize cars drawn from the whole generation.
+     * The tournaments run in parallel, each chunk of parents drawing from its own stream, so every car competes for every
+     * parent. A car that wins more than one tournament is kept as the first parent it won, and the later ones are held
+     * again in one pass, among the cars not picked yet, so the parents are distinct as roulette's are
+     * @param population the current generation and its fitness scores
+     * @return the indices of the parents, in the first population.size() / 2 elements
+     */
+    int[] tournamentSelection(Population population){
+        int populationSize = population.size();
+        int parentCount = populationSize / 2;
+        double[] distance = population.fitness();
+        ensureCapacity(populationSize);
+        long seed = random.nextLong();
+        int chunks = chunks(parentCount);
+        forEachChunk(chunks, chunk -> {
+            RandomSource stream = RandomSource.forChunk(seed, chunk);
+            int end = Math.min(parentCount, (chunk + 1) * CHUNK_SIZE);
+            for (int k = chunk * CHUNK_SIZE; k < end; k++) {
+                parents[k] = tournament(stream, populationSize, distance);
+            }
+        });
+
+        //the repeat winners, which stays on one thread since every tournament depends on the ones before
+        RandomSource stream = RandomSource.forChunk(seed, chunks); //after the streams of the chunks
+        for (int k = 0; k < parentCount; k++) {
+            if (isParent[parents[k]]) {
+                parents[k] = tournament(stream, populationSize, distance);
+            }
+            isParent[parents[k]] = true;
+        }
+        for (int k = 0; k < parentCount; k++) {
+            isParent[parents[k]] = false; //crossover expects it clear
+        }
+        return parents;
+    }
+
+    /**
+     * tournament
+     * @description Draws tournamentSize cars from the generation, skipping the ones marked in isParent, and returns the
+     * fittest. At most half the generation is ever marked, so a draw takes two tries on average
+     * @return the index of the winner
+     */
+    private int tournament(RandomSource stream, int populationSize, double[] distance) {
+        int winner = -1;
+        for (int c = 0; c < tournamentSize; c++) {
+            int challenger;
+            do {
+                challenger = stream.nextInt(populationSize);
+            } while (isParent[challenger]);
+            if (winner < 0 || distance[challenger] > distance[winner]) {
+                winner = challenger;
+            }
+        }
+        return winner;
+    }
+
+    /**
+     * crossover
+     * performs two point crossover to create child generation, writing it into the next generation of the population.
+     * The parents are shuffled into pairs twice, so each parent has two children with two partners, and the pairs are
+     * then bred in parallel. A cut never splits a vertex, so the vertices of each parent are converted once and a child
+     * takes its vertices from its parents the same way it takes its genes. A child with a degenerate chassis is repaired
+     * with CarDefinition.repairChassis, so each child costs one draw of cut points and a bounded repair
+     * @author Kevin Chik (Validation Part by Anthony Lai)
+     * @param population the population to read the parents from and write the children to
+     * @param parents the indices of the parents, in the first population.size() / 2 elements
+     */
+    void crossover(Population population, int[] parents){
+        int populationSize = population.size();
+        int parentCount = populationSize / 2;
+        float[] genes = population.genes();
+        float[] children = population.nextGenes();
+        int length = Population.GENOME_LENGTH;
+        int vertexLength = CarDefinition.NUM_VERTICES * 2;
+        ensureCapacity(populationSize);
+        long seed = random.nextLong();
+        if (parentCount == 0) {
+            return;
+        }
+
+        //convert the parents in the order they are stored rather than selected, which keeps the reads sequential
+        for (int j = 0; j < parentCount; j++) {
+            isParent[parents[j]] = true;
+        }
+        forEachChunk(chunks(populationSize), chunk -> {
+            int end = Math.min(populationSize, (chunk + 1) * CHUNK_SIZE);
+            for (int car = chunk * CHUNK_SIZE; car < end; car++) {
+                if (isParent[car]) {
+                    CarDefinition.toVertices(genes, car * length, vertices, car * vertexLength);
+                    isParent[car] = false;
+                }
+            }
+        });
+
+        //shuffling is a sequence of swaps, which stays on one thread
+        for (int two = 0; two < 2; two++) {
+            for (int j = parentCount - 1; j > 0; j--) {
+                int swap = random.nextInt(j + 1);
+                int temp = parents[j];
+                parents[j] = parents[swap];
+                parents[swap] = temp;
+            }
+            System.arraycopy(parents, 0, pairs, two * parentCount, parentCount);
+        }
+
+        forEachChunk(chunks(parentCount), chunk -> {
+            RandomSource stream = RandomSource.forChunk(seed, chunk);
+            float[] points = new float[vertexLength * 2]; //the vertices of the two children
+            int end = Math.min(parentCount, (chunk + 1) * CHUNK_SIZE);
+            for (int pair = chunk * CHUNK_SIZE; pair < end; pair++) {
+                int parent0 = pairs[pair * 2] * length;
+                int parent1 = pairs[pair * 2 + 1] * length;
+                int genome0 = pair * 2 * length;
+                int genome1 = genome0 + length;
+
+                int point0 = (stream.nextInt(length / 2) + 1) * 2 - 1;
+                int point1;
+                do {
+                    point1 = (stream.nextInt(length / 2) + 1) * 2 - 1;
+                } while (point0 == point1);
+
+                if (point0 > point1) {
+                    int temp = point0;
+                    point0 = point1;
+                    point1 = temp;
+                }
+
+                for (int k = 0; k < point0 - 1; k++) {
+                    children[genome0 + k] = genes[parent0 + k];
+                    children[genome1 + k] = genes[parent1 + k];
+                }
+                for (int k = point0 - 1; k < point1 - 1; k++) {
+                    children[genome0 + k] = genes[parent1 + k];
+                    children[genome1 + k] = genes[parent0 + k];
+                }
+                for (int k = point1 - 1; k < length; k++) {
+                    children[genome0 + k] = genes[parent0 + k];
+                    children[genome1 + k] = genes[parent1 + k];
+                }
+
+                int vertices0 = pairs[pair * 2] * vertexLength;
+                int vertices1 = pairs[pair * 2 + 1] * vertexLength;
+                for (int k = 0; k < vertexLength; k++) {
+                    boolean swapped = k >= point0 - 1 && k < point1 - 1;
+                    points[k] = vertices[(swapped ? vertices1 : vertices0) + k];
+                    points[vertexLength + k] = vertices[(swapped ? vertices0 : vertices1) + k];
+                }
+
+                //repair a degenerate chassis in place instead of drawing new cut points
+                if (CarDefinition.repairChassis(children, genome0, points, 0)) {
+                    repairs.increment();
+                }
+                if (CarDefinition.repairChassis(children, genome1, points, vertexLength)) {
+                    repairs.increment();
+                }
+            }
+        });
+
+        if (populationSize % 2 == 1) {
+            //an odd population has one child more than the pairs breed, which copies a parent
+            System.arraycopy(genes, pairs[0] * length, children, (populationSize - 1) * length, length);
+        }
+    }
+
+    /**
+     * mutation
+     * mutates the children in the next generation of the population. Each gene mutates with a chance of the mutation
+     * rate, so rather than drawing for every gene each chunk draws the geometric gap to the next mutating gene
+     * @author Kevin Chik
+     * @param population the population whose next generation to mutate
+     */
+    void mutation(Population population){
+        float[] children = population.nextGenes();
+        int length = Population.GENOME_LENGTH;
+        long seed = random.nextLong();
+        if (this.mutationRate <= 0) {
+            return;
+        }
+        double logKeep = Math.log(1 - Math.min(this.mutationRate, 1)); //negative infinity when every gene mutates
+        forEachChunk(chunks(population.size()), chunk -> {
+            RandomSource stream = RandomSource.forChunk(seed, chunk);
+            int end = Math.min(population.size(), (chunk + 1) * CHUNK_SIZE) * length;
+            int i = chunk * CHUNK_SIZE * length;
+            while (true) {
+                double skip = Math.log(1 - stream.nextDouble()) / logKeep; //the genes before the next one to mutate
+                if (skip >= end - i) {
+                    break;
+                }
+                i += (int) skip;
+                float mutation = (float) (stream.nextDouble() * this.mutationEffect * 2 - this.mutationEffect);
+                children[i++] += mutation;
+            }
+        });
+    }
+
+    /**
+     * tournamentPick
+     * picks one parent as the fittest of tournamentSize cars drawn from the whole population, for breeding a single
+     * child at a time. Only reads the algorithm's settings, so several threads may pick with their own random sources
+     * @param fitness the fitness scores of the population
+     * @param size the number of cars in the population
+     * @param random the random source of the calling thread
+     * @return the index of the parent
+     */
+    int tournamentPick(double[] fitness, int size, RandomSource random) {
+        int winner = random.nextInt(size);
+        for (int k = 1; k < tournamentSize; k++) {
+            int challenger = random.nextInt(size);
+            if (fitness[challenger] > fitness[winner]) {
+                winner = challenger;
+            }
+        }
+        return winner;
+    }
+
+    /**
+     * breedChild
+     * breeds a single child with the same two point crossover, chassis repair and mutation the whole generation
+     * operators use. Only reads the algorithm's settings, so several threads may breed with their own random sources
+     * @param parent0 the genome of the first parent
+     * @param parent1 the genome of the second parent
+     * @param child the array to write the child's genome to
+     * @param random the random source of the calling thread
+     * @param points scratch space for the chassis checks, of length CarDefinition.NUM_VERTICES * 2
+     */
+    void breedChild(float[] parent0, float[] parent1, float[] child, RandomSource random, float[] points) {
+        int length = Population.GENOME_LENGTH;
+        int point0 = (random.nextInt(length / 2) + 1) * 2 - 1;
+        int point1;
+        do {
+            point1 = (random.nextInt(length / 2) + 1) * 2 - 1;
+        } while (point0 == point1);
+        int start = Math.min(point0, point1) - 1;
+        int end = Math.max(point0, point1) - 1;
+        boolean swapped = random.nextInt(2) == 1; //which of the two children of the cut to keep
+        for (int k = 0; k < length; k++) {
+            boolean inside = k >= start && k < end;
+            child[k] = inside != swapped ? parent1[k] : parent0[k];
+        }
+
+        CarDefinition.toVertices(child, 0, points, 0);
+        if (CarDefinition.repairChassis(child, 0, points, 0)) {
+            repairs.increment();
+        }
+        for (int k = 0; k < length; k++) {
+            if (random.nextDouble() < this.mutationRate) {
+                child[k] += (float) (random.nextDouble() * this.mutationEffect * 2 - this.mutationEffect);
+            }
+        }
+    }
+
+    /**
+     * getRepairs
+     * @return the number of children whose chassis had to be repaired so far
+     */
+    long getRepairs() {
+        return this.repairs.sum();
+    }
+
+    /**
+     * setTournamentSize
+     * @param tournamentSize the number of cars competing in each tournament, at least 1
+     */
+    void setTournamentSize(int tournamentSize) {
+        if (tournamentSize < 1) {
+            throw new IllegalArgumentException("Tournament size must be at least 1 but was " + tournamentSize);
+        }
+        this.tournamentSize = tournamentSize;
+    }
+
+    /**
+     * setThreads
+     * @description Runs the operators on a pool of their own instead of the common pool. The children do not depend on
+     * the number of threads
+     * @param threads the number of threads, at least 1
+     */
+    void setThreads(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Thread count must be at least 1 but was " + threads);
+        }
+        shutdown();
+        this.forkJoinPool = new ForkJoinPool(threads);
+    }
+
+    /**
+     * shutdown
+     * @description Stops the threads of a pool set with setThreads
+     */
+    void shutdown() {
+        if (this.forkJoinPool != ForkJoinPool.commonPool()) {
+            this.forkJoinPool.shutdown();
+        }
+    }
+
+    private static int chunks(int size) {
+        return (size + CHUNK_SIZE - 1) / CHUNK_SIZE;
+    }
+
+    /**
+     * forEachChunk
+     * @description Runs a task for every chunk, on the calling thread when there is only one
+     */
+    private void forEachChunk(int chunks, IntConsumer task) {
+        if (chunks == 1) {
+            task.accept(0);
+        } else if (chunks > 1) {
+            this.forkJoinPool.invoke(new Chunks(task, 0, chunks));
+        }
+    }
+
+    private void ensureCapacity(int populationSize) {
+        if (this.keys.length < populationSize) {
+            this.keys = new double[populationSize];
+            this.order = new int[populationSize];
+            this.parents = new int[populationSize];
+            this.pairs = new int[populationSize];
+            this.isParent = new boolean[populationSize];
+            this.vertices = new float[populationSize * CarDefinition.NUM_VERTICES * 2];
+        }
+    }
+
+    /**
+     * Chunks
+     * @description Splits a range of chunks in half until each task holds one
+     */
+    private static class Chunks extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final IntConsumer task;
+        private final int start;
+        private final int end;
+
+        Chunks(IntConsumer task, int start, int end) {
+            this.task = task;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected void compute() {
+            if (this.end - this.start == 1) {
+                this.task.accept(this.start);
+            } else {
+                int middle = (this.start + this.end) >>> 1;
+                invokeAll(new Chunks(this.task, this.start, middle), new Chunks(this.task, middle, this.end));
+            }
+        }
+
+    }
+
+}
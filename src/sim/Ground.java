@@ -1,5 +1,6 @@
 package sim;
 
+import org.jbox2d.collision.shapes.ChainShape;
 import org.jbox2d.collision.shapes.PolygonShape;
 import org.jbox2d.common.Vec2;
 import org.jbox2d.dynamics.Body;
@@ -21,6 +22,10 @@ class Ground{
 
     static int maxSegments = 300;
 
+    static boolean useChain = false; //build tracks as a single chain body instead of separate tiles
+
+    static boolean streaming = false; //evaluate on an endless StreamingGround track, with no finish line at maxSegments
+
     private ArrayList<Vec2> newCoordinates; //the coordinates of the previous tile
 
     /**
@@ -36,22 +41,29 @@ class Ground{
      * createGround
      * @author Jonah Shapiro
      * @description Randomly generates a set of tiles
+     * @param random the random source to draw the tile angles from
+     */
+    void createGround(RandomSource random){
+        createTrack(randomTrack(random));
+    }
+
+    /**
+     * randomTrack
+     * @description Randomly generates the tile angles of a track, starting with 4 flat tiles to ensure a fair start
+     * @param random the random source to draw the tile angles from
+     * @return the tile angles, in the same format used by customGround
      */
-    void createGround(){
-        Vec2 tilePos = new Vec2(0, -0.5f); //the initial tile position
-        //the following code generates 4 flat tiles to ensure a fair start
-        for (int k = 0; k < 4; k++){
-            Body start = newTile(tilePos, 0f); //create the first tile
-            tilePos = start.getWorldPoint(this.newCoordinates.get(3)); //get the next tile coordinates
+    static ArrayList<float[]> randomTrack(RandomSource random) {
+        ArrayList<float[]> track = new ArrayList<>();
+        for (int k = 0; k < 4; k++) {
+            track.add(new float[]{0f});
         }
-        for (int i = 0; i < maxSegments-4; i++){
-            Body previousTile = newTile(tilePos, (float)((Util.nextFloat(-10f, 8f) * 8f / 100) * Math.pow(-1, i))); //generate a new tile
-            tilePos = previousTile.getWorldPoint(this.newCoordinates.get(3)); //get the next tile coordinates
+        for (int i = 0; i < maxSegments - 4; i++) {
+            track.add(new float[]{(float) ((Util.nextFloat(random, -10f, 8f) * 8f / 100) * Math.pow(-1, i))});
         }
-
+        return track;
     }
 
-
     /**
      * newTile
      * @author Jonah Shapiro
@@ -125,4 +137,40 @@ class Ground{
         }
     }
 
+    /**
+     * createTrack
+     * @param data The ground data to use
+     * this method builds the given ground data as tiles or as a chain, depending on useChain
+     */
+    void createTrack(ArrayList<float[]> data) {
+        if (useChain) {
+            chainGround(data);
+        } else {
+            customGround(data);
+        }
+    }
+
+    /**
+     * chainGround
+     * @param data The ground data to use
+     * this method builds the surface of the tiles from the ground data as a single static body with one chain fixture,
+     * so the whole track is one body and the broadphase only holds one proxy per segment
+     */
+    void chainGround(ArrayList<float[]> data) {
+        Vec2[] surface = new Vec2[data.size() + 1];
+        surface[0] = new Vec2(0, -0.5f);
+        for (int i = 0; i < data.size(); i++) { //each tile surface runs from its position to its rotated far corner
+            float angle = data.get(i)[0];
+            surface[i + 1] = new Vec2((float) Math.cos(angle), (float) Math.sin(angle)).addLocal(surface[i]);
+        }
+        ChainShape chain = new ChainShape();
+        chain.createChain(surface, surface.length);
+        FixtureDef fixture = new FixtureDef();
+        fixture.setFriction(0.5f);
+        fixture.setShape(chain);
+
+        Body body = world.createBody(new BodyDef());
+        body.createFixture(fixture);
+    }
+
 }
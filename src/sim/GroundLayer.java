@@ -0,0 +1,160 @@
+package sim;
+
+import javafx.scene.SnapshotParameters;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.WritableImage;
+import javafx.scene.paint.Color;
+import org.jbox2d.collision.shapes.ChainShape;
+import org.jbox2d.collision.shapes.EdgeShape;
+import org.jbox2d.collision.shapes.PolygonShape;
+import org.jbox2d.collision.shapes.ShapeType;
+import org.jbox2d.common.Transform;
+import org.jbox2d.common.Vec2;
+import org.jbox2d.dynamics.Body;
+import org.jbox2d.dynamics.BodyType;
+import org.jbox2d.dynamics.Fixture;
+import org.jbox2d.dynamics.World;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * GroundLayer.java
+ * @description This class rasterizes the static ground into square image tiles the first time each tile comes into
+ * view, then only composites the cached tiles that intersect the view. The cost of a frame depends on the size of the
+ * view, not the length of the track, and the layer is kept for every car driven on the same ground
+ *
+ */
+class GroundLayer {
+
+    private static final int TILE_SIZE = 512; //the size of an image tile in pixels
+    private static final Color GROUND_COLOR = Color.GRAY;
+
+    //the ground edges in pixel space (x right, y down), as x0, y0, x1, y1
+    private float[] segments = new float[64];
+    private int segmentCount = 0;
+
+    private HashMap<Long, WritableImage> tiles = new HashMap<>(); //rasterized tiles, null for tiles without ground
+    private Canvas scratch = new Canvas(TILE_SIZE, TILE_SIZE); //used to rasterize one tile at a time
+    private SnapshotParameters parameters = new SnapshotParameters();
+
+    /**
+     * @param world the physics world, after the ground has been created
+     */
+    GroundLayer(World world) {
+        this.parameters.setFill(Color.TRANSPARENT);
+        Vec2 one = new Vec2();
+        Vec2 two = new Vec2();
+        EdgeShape edge = new EdgeShape();
+        for (Body body = world.getBodyList(); body != null; body = body.getNext()) {
+            if (body.getType() != BodyType.STATIC) {
+                continue;
+            }
+            Transform transform = body.getTransform();
+            for (Fixture fixture = body.getFixtureList(); fixture != null; fixture = fixture.getNext()) {
+                if (fixture.getType() == ShapeType.POLYGON) {
+                    PolygonShape shape = (PolygonShape) fixture.getShape();
+                    for (int i = 0; i < shape.getVertexCount(); i++) {
+                        Transform.mulToOutUnsafe(transform, shape.getVertex(i), one);
+                        Transform.mulToOutUnsafe(transform, shape.getVertex((i + 1) % shape.getVertexCount()), two);
+                        addSegment(one, two);
+                    }
+                } else if (fixture.getType() == ShapeType.CHAIN) {
+                    ChainShape shape = (ChainShape) fixture.getShape();
+                    for (int i = 0; i < shape.getChildCount(); i++) {
+                        shape.getChildEdge(edge, i);
+                        Transform.mulToOutUnsafe(transform, edge.m_vertex1, one);
+                        Transform.mulToOutUnsafe(transform, edge.m_vertex2, two);
+                        addSegment(one, two);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * draw
+     * @description Draws the ground tiles that intersect the view
+     * @param gc the graphics context of the view
+     * @param originX the pixel space x coordinate at the left edge of the view
+     * @param originY the pixel space y coordinate at the top edge of the view
+     * @param width the width of the view
+     * @param height the height of the view
+     */
+    void draw(GraphicsContext gc, double originX, double originY, double width, double height) {
+        int firstColumn = (int) Math.floor(originX / TILE_SIZE);
+        int lastColumn = (int) Math.floor((originX + width) / TILE_SIZE);
+        int firstRow = (int) Math.floor(originY / TILE_SIZE);
+        int lastRow = (int) Math.floor((originY + height) / TILE_SIZE);
+        for (int column = firstColumn; column <= lastColumn; column++) {
+            for (int row = firstRow; row <= lastRow; row++) {
+                WritableImage tile = tile(column, row);
+                if (tile != null) {
+                    gc.drawImage(tile, Math.floor(column * TILE_SIZE - originX), Math.floor(row * TILE_SIZE - originY));
+                }
+            }
+        }
+    }
+
+    /**
+     * tile
+     * @param column the column of the tile
+     * @param row the row of the tile
+     * @return the rasterized tile, or null if no ground passes through it
+     */
+    private WritableImage tile(int column, int row) {
+        long key = ((long) column << 32) | (row & 0xffffffffL);
+        if (!this.tiles.containsKey(key)) {
+            this.tiles.put(key, rasterize(column, row));
+        }
+        return this.tiles.get(key);
+    }
+
+    /**
+     * rasterize
+     * @description Strokes every ground edge passing through a tile onto the scratch canvas and snapshots it
+     * @param column the column of the tile
+     * @param row the row of the tile
+     * @return the tile image, or null if no ground passes through it
+     */
+    private WritableImage rasterize(int column, int row) {
+        float left = column * TILE_SIZE - 1;
+        float top = row * TILE_SIZE - 1;
+        float right = left + TILE_SIZE + 2;
+        float bottom = top + TILE_SIZE + 2;
+        GraphicsContext gc = this.scratch.getGraphicsContext2D();
+        gc.clearRect(0, 0, TILE_SIZE, TILE_SIZE);
+        gc.setStroke(GROUND_COLOR);
+        gc.setLineWidth(1);
+        boolean empty = true;
+        for (int i = 0; i < this.segmentCount * 4; i += 4) {
+            float x0 = this.segments[i];
+            float y0 = this.segments[i + 1];
+            float x1 = this.segments[i + 2];
+            float y1 = this.segments[i + 3];
+            if (Math.max(x0, x1) < left || Math.min(x0, x1) > right || Math.max(y0, y1) < top || Math.min(y0, y1) > bottom) {
+                continue;
+            }
+            gc.strokeLine(x0 - column * TILE_SIZE, y0 - row * TILE_SIZE, x1 - column * TILE_SIZE, y1 - row * TILE_SIZE);
+            empty = false;
+        }
+        if (empty) {
+            return null;
+        }
+        return this.scratch.snapshot(this.parameters, new WritableImage(TILE_SIZE, TILE_SIZE));
+    }
+
+    private void addSegment(Vec2 one, Vec2 two) {
+        if ((this.segmentCount + 1) * 4 > this.segments.length) {
+            this.segments = Arrays.copyOf(this.segments, this.segments.length * 2);
+        }
+        int i = this.segmentCount * 4;
+        this.segments[i] = one.x * Renderer.SCALE;
+        this.segments[i + 1] = -one.y * Renderer.SCALE;
+        this.segments[i + 2] = two.x * Renderer.SCALE;
+        this.segments[i + 3] = -two.y * Renderer.SCALE;
+        this.segmentCount++;
+    }
+
+}
@@ -0,0 +1,300 @@
+package sim;
+
+import java.util.ArrayList;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * IslandEvolution.java
+ * @description This class runs several populations, or islands, side by side, each on a thread of its own with its own
+ * selection method, mutation rate and mutation effect. Every migrationInterval generations an island sends copies of its
+ * fittest cars to the next island in a ring and takes in whatever cars have reached it in place of its weakest ones.
+ * The cars travel through lock-free queues and no island ever waits for another, so which migrants an island sees
+ * depends on timing and a run is not reproducible from its seed the way an Evolution is
+ *
+ */
+class IslandEvolution {
+
+    private final Island[] islands;
+    private final int migrationInterval;
+    private final int migrants;
+    private final FitnessCache cache; //null when caching is off
+    private volatile Throwable failure;
+
+    /**
+     * @param seed the seed of the run, which the track and the first generation of every island are drawn from
+     * @param populationSize the number of cars on each island
+     * @param selectionTypes the selection method of each island, GeneticAlgorithm.ROULETTE or GeneticAlgorithm.TOURNAMENT
+     * @param mutationRates the chance of each gene mutating, for each island
+     * @param mutationEffects the largest change a mutation makes to a gene, for each island
+     * @param migrationInterval the number of generations between migrations
+     * @param migrants the number of cars each island sends at a migration
+     * @param cacheSize the most genomes to remember the fitness of, shared by the islands, or 0 to simulate every genome
+     * @param store the evaluation store shared with other runs, or null to not use one
+     */
+    IslandEvolution(long seed, int populationSize, int[] selectionTypes, double[] mutationRates, double[] mutationEffects, int migrationInterval, int migrants, int cacheSize, EvaluationStore store) {
+        if (selectionTypes.length != mutationRates.length || selectionTypes.length != mutationEffects.length) {
+            throw new IllegalArgumentException("Every island needs a selection type, a mutation rate and a mutation effect");
+        }
+        if (migrationInterval < 1) {
+            throw new IllegalArgumentException("Migration interval must be at least 1 but was " + migrationInterval);
+        }
+        if (migrants < 0 || migrants >= populationSize) {
+            throw new IllegalArgumentException("Migrants must be between 0 and the population size but was " + migrants);
+        }
+        this.migrationInterval = migrationInterval;
+        this.migrants = migrants;
+        RandomSource random = new RandomSource(seed);
+        ArrayList<float[]> track = Ground.randomTrack(random);
+        this.cache = cacheSize > 0 ? new FitnessCache(cacheSize) : null;
+        this.islands = new Island[selectionTypes.length];
+        for (int i = 0; i < this.islands.length; i++) {
+            RandomSource stream = random.split();
+            Evaluator evaluator = new Evaluator(track);
+            evaluator.setCache(this.cache);
+            evaluator.setStore(store);
+            this.islands[i] = new Island(evaluator,
+                    new GeneticAlgorithm(selectionTypes[i], mutationRates[i], mutationEffects[i], stream),
+                    Evolution.randomPopulation(populationSize, stream));
+        }
+    }
+
+    /**
+     * run
+     * @description Runs every island for the given number more generations, each on its own thread
+     * @param generations the number of generations
+     */
+    void run(int generations) {
+        ArrayList<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < this.islands.length; i++) {
+            Island island = this.islands[i];
+            Island neighbour = this.islands[(i + 1) % this.islands.length];
+            Thread thread = new Thread(() -> {
+                try {
+                    for (int g = 0; g < generations && this.failure == null; g++) {
+                        island.step(neighbour);
+                    }
+                } catch (Throwable e) {
+                    this.failure = e;
+                }
+            }, "island-" + i);
+            thread.setDaemon(true); //never keep the JVM alive once the algorithm is done
+            threads.add(thread);
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        try {
+            for (Thread thread : threads) {
+                thread.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Evolution was interrupted", e);
+        }
+        if (this.failure != null) {
+            throw new IllegalStateException("Evaluation failed", this.failure);
+        }
+    }
+
+    int getIslandCount() {
+        return this.islands.length;
+    }
+
+    long getCarsEvaluated() {
+        long cars = 0;
+        for (Island island : this.islands) {
+            cars += island.carsEvaluated;
+        }
+        return cars;
+    }
+
+    long getSteps() {
+        long steps = 0;
+        for (Island island : this.islands) {
+            steps += island.steps;
+        }
+        return steps;
+    }
+
+    long getMigrations() {
+        long migrations = 0;
+        for (Island island : this.islands) {
+            migrations += island.received;
+        }
+        return migrations;
+    }
+
+    float getBestFitness() {
+        float best = 0;
+        for (Island island : this.islands) {
+            best = Math.max(best, island.bestFitness);
+        }
+        return best;
+    }
+
+    /**
+     * getBestFitness
+     * @param island the index of the island
+     * @return the best fitness the island has seen, including cars that migrated to it
+     */
+    float getBestFitness(int island) {
+        return this.islands[island].bestFitness;
+    }
+
+    /**
+     * getCache
+     * @return the fitness cache shared by the islands, or null when caching is off
+     */
+    FitnessCache getCache() {
+        return this.cache;
+    }
+
+    /**
+     * getDiversity
+     * @description Only call between runs
+     * @return the standard deviation of each gene over the cars of every island, averaged over the genes
+     */
+    double getDiversity() {
+        int length = Population.GENOME_LENGTH;
+        double[] sum = new double[length];
+        double[] squares = new double[length];
+        long cars = 0;
+        for (Island island : this.islands) {
+            float[] genes = island.population.genes();
+            for (int car = 0; car < island.population.size(); car++) {
+                for (int k = 0; k < length; k++) {
+                    double gene = genes[car * length + k];
+                    sum[k] += gene;
+                    squares[k] += gene * gene;
+                }
+            }
+            cars += island.population.size();
+        }
+        double diversity = 0;
+        for (int k = 0; k < length; k++) {
+            double mean = sum[k] / cars;
+            diversity += Math.sqrt(Math.max(squares[k] / cars - mean * mean, 0));
+        }
+        return diversity / length;
+    }
+
+    /**
+     * Migrant
+     * @description A copy of a car sent to another island, with the fitness it scored on the shared track
+     */
+    private static class Migrant {
+
+        final float[] genome;
+        final double fitness;
+
+        Migrant(float[] genome, double fitness) {
+            this.genome = genome;
+            this.fitness = fitness;
+        }
+
+    }
+
+    /**
+     * Island
+     * @description One population with its own algorithm and evaluator, only ever touched by its own thread apart
+     * from its inbox
+     */
+    private class Island {
+
+        private final Evaluator evaluator;
+        private final GeneticAlgorithm algorithm;
+        private final Population population;
+        private final ConcurrentLinkedQueue<Migrant> inbox = new ConcurrentLinkedQueue<>();
+
+        private volatile long carsEvaluated = 0;
+        private volatile long steps = 0;
+        private volatile long received = 0;
+        private volatile float bestFitness = 0;
+        private int generation = 0;
+
+        Island(Evaluator evaluator, GeneticAlgorithm algorithm, Population population) {
+            this.evaluator = evaluator;
+            this.algorithm = algorithm;
+            this.population = population;
+        }
+
+        /**
+         * step
+         * @description Evaluates the current generation, migrates when due and breeds the next generation
+         * @param neighbour the island to send migrants to
+         */
+        void step(Island neighbour) {
+            float[] genome = new float[Population.GENOME_LENGTH];
+            float best = this.bestFitness;
+            for (int car = 0; car < this.population.size(); car++) {
+                System.arraycopy(this.population.genes(), car * genome.length, genome, 0, genome.length);
+                float fitness = this.evaluator.evaluate(genome);
+                this.steps += this.evaluator.getSteps();
+                this.population.setFitness(car, fitness);
+                best = Math.max(best, fitness);
+            }
+            this.carsEvaluated += this.population.size();
+            this.generation++;
+            if (this.generation % migrationInterval == 0) {
+                emigrate(neighbour);
+                best = Math.max(best, immigrate());
+            }
+            this.bestFitness = best;
+            this.algorithm.nextGeneration(this.population);
+        }
+
+        /**
+         * emigrate
+         * @description Sends copies of the fittest cars to the neighbour's inbox
+         */
+        private void emigrate(Island neighbour) {
+            double[] fitness = this.population.fitness();
+            boolean[] sent = new boolean[this.population.size()];
+            for (int m = 0; m < migrants; m++) {
+                int fittest = -1;
+                for (int car = 0; car < this.population.size(); car++) {
+                    if (!sent[car] && (fittest < 0 || fitness[car] > fitness[fittest])) {
+                        fittest = car;
+                    }
+                }
+                sent[fittest] = true;
+                neighbour.inbox.offer(new Migrant(this.population.getGenome(fittest), fitness[fittest]));
+            }
+        }
+
+        /**
+         * immigrate
+         * @description Takes in the cars waiting in the inbox, each in place of the weakest car left. An island that
+         * falls behind its neighbour may find several migrations waiting, and only keeps the fittest cars of them, as
+         * many as one migration sends
+         * @return the best fitness of the cars taken in
+         */
+        private float immigrate() {
+            ArrayList<Migrant> arrived = new ArrayList<>();
+            Migrant migrant;
+            while ((migrant = this.inbox.poll()) != null) {
+                arrived.add(migrant);
+            }
+            arrived.sort((one, two) -> Double.compare(two.fitness, one.fitness));
+            double[] fitness = this.population.fitness();
+            boolean[] replaced = new boolean[this.population.size()];
+            float best = 0;
+            for (int m = 0; m < Math.min(migrants, arrived.size()); m++) {
+                int weakest = -1;
+                for (int car = 0; car < this.population.size(); car++) {
+                    if (!replaced[car] && (weakest < 0 || fitness[car] < fitness[weakest])) {
+                        weakest = car;
+                    }
+                }
+                replaced[weakest] = true;
+                this.population.setGenome(weakest, arrived.get(m).genome);
+                this.population.setFitness(weakest, arrived.get(m).fitness);
+                best = Math.max(best, (float) arrived.get(m).fitness);
+                this.received++;
+            }
+            return best;
+        }
+
+    }
+
+}
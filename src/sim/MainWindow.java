@@ -3,34 +3,26 @@ package sim;
 import javafx.animation.KeyFrame;
 import javafx.animation.Timeline;
 import javafx.application.Application;
-import javafx.event.ActionEvent;
-import javafx.event.EventHandler;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.Group;
 import javafx.scene.Scene;
+import javafx.scene.canvas.Canvas;
 import javafx.scene.control.Button;
 import javafx.scene.control.Label;
 import javafx.scene.control.Slider;
+import javafx.scene.control.ToggleButton;
+import javafx.scene.control.ToggleGroup;
 import javafx.scene.layout.GridPane;
 import javafx.scene.layout.HBox;
 import javafx.scene.paint.Color;
-import javafx.scene.shape.Circle;
-import javafx.scene.shape.Line;
 import javafx.scene.shape.Rectangle;
-import javafx.scene.shape.Shape;
 import javafx.scene.text.Font;
 import javafx.scene.text.FontWeight;
 import javafx.scene.text.Text;
 import javafx.scene.transform.Rotate;
 import javafx.stage.Stage;
 import javafx.util.Duration;
-import org.jbox2d.collision.shapes.CircleShape;
-import org.jbox2d.collision.shapes.PolygonShape;
-import org.jbox2d.collision.shapes.ShapeType;
-import org.jbox2d.common.Vec2;
-import org.jbox2d.dynamics.Body;
-import org.jbox2d.dynamics.Fixture;
 import org.jbox2d.dynamics.World;
 import java.util.ArrayList;
 
@@ -42,16 +34,15 @@ import java.util.ArrayList;
 public class MainWindow extends Application {
 
     //world
-    static final Vec2 GRAVITY = new Vec2(0.0F, -9.81F);
-    private World world = new World(GRAVITY);
-    static final int FPS = 60;
+    private World world = new World(Evaluator.GRAVITY);
     private Timeline timeline = new Timeline();
+    private Simulation simulation; //runs the physics and the algorithm off the application thread
+    private int speed = 1; //simulated seconds per real second
 
     //stage
     private static final int WIDTH = 900;
     private static final int HEIGHT = 600;
-    private float[] carPos = new float[2];
-    private float[] camera = new float[2];
+    private Renderer renderer;
 
     //presets
     private double MUTATION_RATE = 0.2;
@@ -60,16 +51,8 @@ public class MainWindow extends Application {
     private int selectionType = 0; //0- Roulette //1 - Tournament
 
     //algorithm
-    private int generation = 0;
-    private int carNumber = 0;
-    private float[][] currentGenome = new float[populationSize][22];
-    private float[][] genome = new float[populationSize][22];
-    private double[] distance = new double[populationSize];
-    private static int carsGenerated = 0;
-
-    //body list
-    private Body[] bodyList;
-    private Shape[][][] shapeList;
+    private long seed = System.nanoTime(); //the seed of the run, set with --seed to reproduce a run
+    private RandomSource random;
 
     //text and fields
     private Text carInfoText;
@@ -92,6 +75,10 @@ public class MainWindow extends Application {
 
     @Override
     public void start(Stage primaryStage) {
+        String seedParameter = getParameters().getNamed().get("seed");
+        if (seedParameter != null) {
+            seed = Long.parseLong(seedParameter);
+        }
         menu(primaryStage);
     }
 
@@ -139,16 +126,20 @@ public class MainWindow extends Application {
     private void startSimulation(Stage primaryStage) {
         //root
         Group root = new Group();
+        random = new RandomSource(seed);
 
         //ground
         Ground ground = new Ground(world);
         if (customMap) {
-            ground.customGround(mapCoordinates);
+            ground.createTrack(mapCoordinates);
         } else {
-            ground.createGround();
+            ground.createGround(random);
         }
-        createBodyList();
-        createShapeList();
+
+        //canvas
+        Canvas canvas = new Canvas(WIDTH, HEIGHT);
+        root.getChildren().add(canvas);
+        renderer = new Renderer(canvas, world);
 
         //text
         drawText(root);
@@ -162,6 +153,8 @@ public class MainWindow extends Application {
 
         backButton.setOnAction(event -> backSimulation(primaryStage));
 
+        drawSpeedControls(root);
+
         //create scene
         Scene scene = new Scene(root);
 
@@ -169,7 +162,7 @@ public class MainWindow extends Application {
         primaryStage.setScene(scene);
         primaryStage.show();
 
-        runGeneticAlgorithm(root);
+        runGeneticAlgorithm();
     }
 
     /**
@@ -180,13 +173,10 @@ public class MainWindow extends Application {
      */
     private void backSimulation(Stage primaryStage) {
         timeline.stop();
+        simulation.stop();
         customMap = false;
         mapCoordinates = new ArrayList<>();
-        genome = new float[20][22];
-        generation = 0;
-        carNumber = 0;
-        carsGenerated = 0;
-        world = new World(GRAVITY);
+        world = new World(Evaluator.GRAVITY);
         menu(primaryStage);
     }
 
@@ -391,259 +381,53 @@ public class MainWindow extends Application {
 
     /**
      * runGeneticAlgorithm
-     * genetic algorithm
+     * starts the genetic algorithm on the simulation thread and draws its latest state every frame
      * @author Kevin Chik and Anthony Lai
-     * @param root group that contains all shapes to be displayed
      */
-    private void runGeneticAlgorithm(Group root) {
-        Car car;
-        if (generation > 0) {
-            car = new Car(genome[carNumber], world);
-        } else {
-            car = new Car(CarDefinition.createRandomCar(), world);
-        }
-        createBodyList();
-        createShapeList();
-        drawCar(root);
-        drawGround(root);
-        carInfoText.setText("Generation: " + generation + "\nCar number: " + (carNumber + 1) + "\nTotal cars generated: " + (carsGenerated + 1));
+    private void runGeneticAlgorithm() {
+        GeneticAlgorithm algorithm = new GeneticAlgorithm(selectionType, MUTATION_RATE, MUTATION_EFFECT, random);
+        simulation = new Simulation(world, algorithm, populationSize, random);
+        simulation.setSpeed(speed);
+        simulation.start();
 
-        //evaluate
+        //draw
         timeline = new Timeline();
-        evaluate(car, root);
-    }
-
-    /**
-     * evaluate
-     * sets up keyframes for every 1/60s
-     * @author Kevin Chik and Anthony Lai
-     */
-    private void evaluate(Car car, Group root) {
         timeline.setCycleCount(Timeline.INDEFINITE);
-        Duration duration = Duration.seconds(1.0 / FPS);
-        EventHandler<ActionEvent> actionEvent = terminate -> {
-            world.step(1.0f / FPS, 8, 3);
-            createBodyList();
-            carFitnessScoreText.setText("Fitness Score: " + Util.round2(car.getFitnessScore()) + "");
-            update();
-            if (car.checkDeath()) {
-                currentGenome[carNumber] = car.getGenome();
-                distance[carNumber] = car.getFitnessScore();
-                clearScreen(root);
-                car.kill();
-                carsGenerated++;
-                carNumber++;
-                timeline.pause();
-                if (carNumber == populationSize) {
-                    if (selectionType == 0) {
-                        genome = rouletteSelection(currentGenome, distance);
-                    }else if (selectionType == 1){
-                        genome = tournamentSelection(currentGenome, distance);
-                    }
-                    carNumber = 0;
-                    generation++;
-                }
-                runGeneticAlgorithm(root);
+        KeyFrame keyFrame = new KeyFrame(Duration.seconds(Evaluator.TIME_STEP), frame -> {
+            Snapshot snapshot = simulation.latest();
+            if (snapshot.shape == null) {
+                return; //the first car has not been published yet
             }
-        };
-        KeyFrame keyFrame = new KeyFrame(duration, actionEvent, null, null);
+            carFitnessScoreText.setText("Fitness Score: " + Util.round2(snapshot.fitness) + "");
+            carInfoText.setText("Generation: " + snapshot.generation + "\nCar number: " + (snapshot.carNumber + 1) + "\nTotal cars generated: " + (snapshot.carsGenerated + 1));
+            renderer.render(snapshot);
+        });
         timeline.getKeyFrames().add(keyFrame);
         timeline.playFromStart();
     }
 
     /**
-     * clearScreen
-     * removes shapes from root
-     * @author Kevin Chik
+     * drawSpeedControls
+     * adds the buttons that set how fast the simulation runs
      * @param root group that contains all shapes to be displayed
      */
-    private void clearScreen(Group root) {
-        for (Shape[][] body : shapeList) {
-            for (Shape[] fixture : body) {
-                for (Shape line : fixture) {
-                    root.getChildren().remove(line);
-                }
-            }
-        }
-    }
-
-    /**
-     * update
-     * updates position of car
-     * @author Kevin Chik
-     */
-    private void update() {
-        for (int i = 0; i < shapeList.length; i++) {
-            float x = Util.toPixelX(bodyList[i].getPosition().x) + 200f;
-            float y = Util.toPixelY(bodyList[i].getPosition().y) - 800;
-            float angle = -(bodyList[i].getTransform().q.getAngle());
-            Fixture fixture = bodyList[i].getFixtureList();
-            int fixtureCount = 0;
-            do {
-                fixtureCount++;
-                fixture = fixture.getNext();
-            } while (fixture != null);
-            if (fixtureCount > 1) {
-                camera[0] = carPos[0] - x;
-                camera[1] = carPos[1] - y;
-            }
-            x += camera[0];
-            y += camera[1];
-            fixture = bodyList[i].getFixtureList();
-            for (int j = 0; j < shapeList[i].length; j++) {
-                if (fixture.getType() == ShapeType.POLYGON) {
-                    PolygonShape shape = (PolygonShape)fixture.getShape();
-                    int k = 0;
-                    for (; k < shapeList[i][j].length - 1; k++) {
-                        Line line = ((Line)shapeList[i][j][k]);
-                        float x0 = shape.getVertex(k).x;
-                        float y0 = shape.getVertex(k).y;
-                        float ax0 = (float) (Math.sin(angle) * y0 + Math.cos(angle) * x0);
-                        float ay0 = (float) (Math.cos(angle) * y0 - Math.sin(angle) * x0);
-                        float x1 = shape.getVertex(k + 1).x;
-                        float y1 = shape.getVertex(k + 1).y;
-                        float ax1 = (float) (Math.sin(angle) * y1 + Math.cos(angle) * x1);
-                        float ay1 = (float) (Math.cos(angle) * y1 - Math.sin(angle) * x1);
-                        if (shapeList[i][j].length > 3) {
-                            line.setStroke(Color.GRAY);
-                        } else {
-                            line.setStroke(Color.valueOf("#2b2b2b"));
-                        }
-                        line.setStartX(Util.toPixelX(ax0) + x);
-                        line.setStartY(Util.toPixelY(ay0) + y);
-                        line.setEndX(Util.toPixelX(ax1) + x);
-                        line.setEndY(Util.toPixelY(ay1) + y);
-                        shapeList[i][j][k] = line;
-                    }
-                    Line line = ((Line)shapeList[i][j][k]);
-                    float x0 = shape.getVertex(0).x;
-                    float y0 = shape.getVertex(0).y;
-                    float ax0 = (float) (Math.sin(angle) * y0 + Math.cos(angle) * x0);
-                    float ay0 = (float) (Math.cos(angle) * y0 - Math.sin(angle) * x0);
-                    float x1 = shape.getVertex(k).x;
-                    float y1 = shape.getVertex(k).y;
-                    float ax1 = (float) (Math.sin(angle) * y1 + Math.cos(angle) * x1);
-                    float ay1 = (float) (Math.cos(angle) * y1 - Math.sin(angle) * x1);
-                    if (shapeList[i][j].length > 3) {
-                        line.setStroke(Color.GRAY);
-                    } else {
-                        line.setStroke(Color.valueOf("#2b2b2b"));
-                    }
-                    line.setStartX(Util.toPixelX(ax0) + x);
-                    line.setStartY(Util.toPixelY(ay0) + y);
-                    line.setEndX(Util.toPixelX(ax1) + x);
-                    line.setEndY(Util.toPixelY(ay1) + y);
-                    shapeList[i][j][k] = line;
-                } else if (fixture.getType() == ShapeType.CIRCLE) {
-                    CircleShape shape = (CircleShape)fixture.getShape();
-                    Circle circle = ((Circle)shapeList[i][j][0]);
-                    circle.setFill(Color.rgb(255, 192, 203, 0.5));
-                    circle.setStroke(Color.DEEPPINK);
-                    circle.setRadius(shape.getRadius() * 50f);
-                    circle.setCenterX(x);
-                    circle.setCenterY(y + 600f);
-                    shapeList[i][j][0] = circle;
-                }
-                fixture = fixture.getNext();
-            }
-        }
-
-    }
-
-    /**
-     * draw
-     * draws ground on scene
-     * @author Kevin Chik
-     * @param root group that contains all shapes to be displayed
-     */
-    private void drawGround(Group root) {
-        for (Shape[][] body : shapeList) {
-            for (Shape[] fixture : body) {
-                if (fixture.length == 4) {
-                    for (Shape line : fixture) {
-                        root.getChildren().add(line);
-                    }
-                }
-            }
-        }
-    }
-
-    /**
-     * drawCar
-     * draws car on scene
-     * @author Kevin Chik
-     * @param root group that contains all shapes to be displayed
-     */
-    private void drawCar(Group root) {
-        for (Body body : bodyList) {
-            int fixtureCount = 0;
-            Fixture fixture = body.getFixtureList();
-            do {
-                fixtureCount++;
-                fixture = fixture.getNext();
-            } while (fixture != null);
-            if (fixtureCount > 1) {
-                carPos[0] = Util.toPixelX(body.getPosition().x) + 200f;
-                carPos[1] = Util.toPixelY(body.getPosition().y) - 800f;
-            }
-        }
-        for (Shape[][] body : shapeList) {
-            for (Shape[] fixture : body) {
-                if (fixture.length < 4) {
-                    for (Shape line : fixture) {
-                        root.getChildren().add(line);
-                    }
-                }
-            }
-        }
-    }
-
-    /**
-     * createBodyList
-     * puts all JBox2d bodies in an array
-     * @author Kevin Chik
-     */
-    private void createBodyList() {
-        bodyList = new Body[world.getBodyCount()];
-        Body body = world.getBodyList();
-        for (int i = 0; i < world.getBodyCount(); i++) {
-            bodyList[i] = body;
-            body = body.getNext();
-        }
-    }
-
-    /**
-     * createShapeList
-     * converts bodyList to JavaFX shapes
-     * @author Kevin Chik
-     */
-    private void createShapeList() {
-        shapeList = new Shape[bodyList.length][][];
-        for (int i = 0; i < world.getBodyCount(); i++) {
-            int fixtureCount = 0;
-            Fixture fixture = bodyList[i].getFixtureList();
-            do {
-                fixtureCount++;
-                fixture = fixture.getNext();
-            } while (fixture != null);
-            shapeList[i] = new Shape[fixtureCount][];
-            fixture = bodyList[i].getFixtureList();
-            for (int j = 0; j < fixtureCount; j++) {
-                if (fixture.getType() == ShapeType.POLYGON) {
-                    int vertexCount = ((PolygonShape)fixture.getShape()).getVertexCount();
-                    shapeList[i][j] = new Line[vertexCount];
-                    int k = 0;
-                    for (; k < vertexCount - 1; k++) {
-                        shapeList[i][j][k] = new Line();
-                    }
-                    shapeList[i][j][k] = new Line();
-                } else if (fixture.getType() == ShapeType.CIRCLE) {
-                    shapeList[i][j] = new Circle[1];
-                    shapeList[i][j][0] = new Circle();
-                }
-                fixture = fixture.getNext();
-            }
+    private void drawSpeedControls(Group root) {
+        HBox hBox = new HBox(5);
+        hBox.setLayoutX(60);
+        ToggleGroup group = new ToggleGroup();
+        int[] speeds = {1, 10, 100, Simulation.MAX_SPEED};
+        for (int option : speeds) {
+            ToggleButton button = new ToggleButton(option == Simulation.MAX_SPEED ? "Max" : option + "x");
+            button.setToggleGroup(group);
+            button.setSelected(option == speed);
+            button.setOnAction(event -> {
+                speed = option;
+                simulation.setSpeed(option);
+                button.setSelected(true); //keep the current speed selected when clicked again
+            });
+            hBox.getChildren().add(button);
         }
+        root.getChildren().add(hBox);
     }
 
     /**
@@ -673,213 +457,6 @@ public class MainWindow extends Application {
         root.getChildren().add(carFitnessScoreText);
     }
 
-    /**
-     * rouletteSelection
-     * determines parents for next generation
-     * @author Anthony Lai
-     * @param currentGen current generation of cars
-     * @param distance fitness scores
-     * @return parents for next generation
-     */
-    private float[][] rouletteSelection(float[][] currentGen, double[] distance){
-
-        //fitnessScores - index 0 is the car's fitness score - index 1 is the car's probability of selection
-        double [][] fitnessScores = new double[populationSize][2];
-        for (int i = 0; i < fitnessScores.length; i++) {
-            fitnessScores[i][0] = distance[i];
-        }
-
-        //Find sum of all fitness scores
-        double sumOfFitnessScores = 0;
-        for (double[] fitnessScore : fitnessScores) {
-            sumOfFitnessScores = fitnessScore[0] + sumOfFitnessScores;
-        }
-
-        //Find each car's probability of selection
-        for (int i = 0; i < fitnessScores.length; i++){
-            fitnessScores[i][1] = (fitnessScores[i][0] / sumOfFitnessScores) * 100;
-        }
-
-        double[] rouletteWheel = new double[populationSize];
-        rouletteWheel[0] = fitnessScores[0][1];
-        for (int i = 1; i < rouletteWheel.length; i++){
-            rouletteWheel[i] = fitnessScores[i][1] + rouletteWheel[i-1];
-        }
-
-        //selecting parents
-        double selectionNum;
-        ArrayList<float[]> parents = new ArrayList<>();
-        boolean[] selected = new boolean[populationSize];
-        do{
-            selectionNum = (Math.random()*101);
-
-            if ((selectionNum >= 0) && (selectionNum <= rouletteWheel[0])){
-                if (!selected[0]) {
-                    parents.add(currentGen[0]);
-                    selected[0] = true;
-                }
-            }
-            for (int j = 1; j < rouletteWheel.length; j++){
-                if ((selectionNum > rouletteWheel[j-1]) && (selectionNum <= rouletteWheel[j])){
-                    if (!selected[j]) {
-                        parents.add(currentGen[j]);
-                        selected[j] = true;
-                    }
-                }
-            }
-        }while (parents.size() < populationSize/2);
-
-        //Call Crossover method
-        //next step
-        return crossover(parents);
-    }
-
-    /**
-     * tournamentSelection
-     * determines parents for next generation, tournament style
-     * @author Anthony Lai
-     * @param currentGen current generation of cars
-     * @param distance fitness scores
-     * @return parents for next generation
-     */
-    private float[][] tournamentSelection (float[][]currentGen, double[] distance){
-        ArrayList<float[]>parents = new ArrayList<>();
-        boolean[] selected = new boolean[populationSize];
-
-        do{
-            int carA = (int)(Math.random()*populationSize);
-            int carB = (int)(Math.random()*populationSize);
-
-            if (carA != carB){
-                if ((!selected[carA])&&(!selected[carB])){
-                    if (distance[carA] > distance[carB]){
-                        parents.add(currentGen[carA]);
-                        selected[carA] = true;
-                        selected[carB] = true;
-                    }else if (distance[carA] < distance[carB]){
-                        parents.add(currentGen[carB]);
-                        selected[carA] = true;
-                        selected[carB] = true;
-                    }else{
-                        selected[carA] = false;
-                        selected[carB] = false;
-                    }
-                }
-            }
-        }while(parents.size() < populationSize/2);
-
-        return crossover(parents);
-    }
-
-    /**
-     * crossover
-     * performs crossover to create child generation
-     * @author Kevin Chik (Validation Part by Anthony Lai)
-     * @param parents parent generation
-     * @return child generation
-     */
-    private float [][] crossover (ArrayList<float[]> parents){
-        float[][] children = new float[populationSize][22];
-        int i = 0;
-        for (int two = 0; two < 2; two++) {
-            for (int j = 0; j < parents.size(); j++) {
-                float[] temp = parents.get(j);
-                int random = (int) (Math.random() * parents.size());
-                parents.set(j, parents.get(random));
-                parents.set(random, temp);
-            }
-
-            for (int j = 0; j < parents.size(); j += 2) {
-                float[] parent0 = parents.get(j);
-                float[] parent1 = parents.get(j + 1);
-
-                boolean valid = false;
-                float[] genome0 = new float[22];
-                float[] genome1 = new float[22];
-
-                do {
-                    int point0 = ((int) (Math.random() * 11) + 1) * 2 - 1;
-                    int point1;
-                    do {
-                        point1 = ((int) (Math.random() * 11) + 1) * 2 - 1;
-                    } while (point0 == point1);
-
-                    if (point0 > point1) {
-                        int temp = point0;
-                        point0 = point1;
-                        point1 = temp;
-                    }
-
-                    for (int k = 0; k < point0 - 1; k++) {
-                        genome0[k] = parent0[k];
-                        genome1[k] = parent1[k];
-                    }
-                    for (int k = point0 - 1; k < point1 - 1; k++) {
-                        genome0[k] = parent1[k];
-                        genome1[k] = parent0[k];
-                    }
-                    for (int k = point1 - 1; k < genome0.length; k++) {
-                        genome0[k] = parent0[k];
-                        genome1[k] = parent1[k];
-                    }
-
-                    ArrayList<Vec2> child1Vertices = new ArrayList<>();
-                    ArrayList<Vec2> child2Vertices = new ArrayList<>();
-                    for (int k = 0; k < genome0.length - 7; k+=2){
-                        child1Vertices.add(Util.polarToRectangular(genome0[k], genome0[k+1]));
-                        child2Vertices.add(Util.polarToRectangular(genome1[k], genome1[k+1]));
-                    }
-
-                    for (int k = 0; k < child1Vertices.size(); k++){
-                        valid = CarDefinition.checkValid(child1Vertices.get(k), child1Vertices);
-                        if (!valid){
-                            break;
-                        }
-                    }
-
-                    if (valid) {
-                        for (int k = 0; k < child2Vertices.size(); k++) {
-                            valid = CarDefinition.checkValid(child2Vertices.get(k), child2Vertices);
-                            if (!valid) {
-                                break;
-                            }
-                        }
-                    }
-
-                    child1Vertices.clear();
-                    child2Vertices.clear();
-
-                }while(!valid);
-
-                children[i] = genome0;
-                children[i + 1] = genome1;
-                i += 2;
-            }
-        }
-
-        return mutation(children);
-    }
-
-    /**
-     * mutation
-     * mutates children
-     * @author Kevin Chik
-     * @param children child generation
-     * @return mutated child generation
-     */
-    private float[][] mutation(float[][] children){
-        for (int i = 0; i < children.length; i++) {
-            for (int j = 0; j < children[i].length; j++) {
-                double random = Math.random();
-                if (random <= MUTATION_RATE) {
-                    float mutation = (float) (Math.random() * MUTATION_EFFECT * 2 - MUTATION_EFFECT);
-                    children[i][j] += mutation;
-                }
-            }
-        }
-        return children;
-    }
-
     public static void main(String[] args) {
         launch(args);
     }
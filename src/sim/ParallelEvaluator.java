@@ -0,0 +1,192 @@
+package sim;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntConsumer;
+import java.util.function.Supplier;
+
+/**
+ * ParallelEvaluator.java
+ * @description This class evaluates a whole generation of cars in parallel, each worker thread running its own
+ * Evaluator so no World, Ground or Car is ever shared between threads.
+ *
+ * With screening on, a generation is evaluated in two stages. Every car is first run for screenSteps steps, which are
+ * the first steps of its full run, so the cars that die within them, usually most of a random or mutated generation,
+ * already have their full fitness. Of the cars still alive only the ones furthest along, screenFraction of the
+ * generation, are run again to the end; the rest keep the distance they reached, a lower bound of their full fitness
+ * that is never more than the full fitness of a car that was run to the end
+ *
+ */
+class ParallelEvaluator implements GenerationEvaluator {
+
+    private ExecutorService pool;
+    private ThreadLocal<Evaluator> evaluators; //one evaluator per worker thread
+    private LongAdder steps = new LongAdder(); //the physics steps run by every worker
+    private LongAdder screenedOut = new LongAdder(); //the cars that kept their screening fitness
+    private int screenSteps = 0; //0 runs every car to the end
+    private double screenFraction = 1;
+    private final int threads;
+    private boolean[] finished = new boolean[0]; //whether each car of the generation died within its screening steps
+    private long[] alive = new long[0]; //the cars still alive after screening, as Util.rankKey keys
+
+    /**
+     * @param track the tile angles of the track, in the format used by Ground.customGround
+     * @param threads the number of worker threads
+     */
+    ParallelEvaluator(ArrayList<float[]> track, int threads) {
+        this(track, threads, null, null);
+    }
+
+    /**
+     * @param track the tile angles of the track, in the format used by Ground.customGround
+     * @param threads the number of worker threads
+     * @param cache the fitness cache shared by the worker threads, or null to simulate every genome
+     * @param store the evaluation store shared by the worker threads, or null to not use one
+     */
+    ParallelEvaluator(ArrayList<float[]> track, int threads, FitnessCache cache, EvaluationStore store) {
+        this(() -> new Evaluator(track), threads, cache, store);
+    }
+
+    /**
+     * @param trackSeed the seed of the endless track streamed with Ground.streaming on
+     * @param threads the number of worker threads
+     * @param cache the fitness cache shared by the worker threads, or null to simulate every genome
+     * @param store the evaluation store shared by the worker threads, or null to not use one
+     */
+    ParallelEvaluator(long trackSeed, int threads, FitnessCache cache, EvaluationStore store) {
+        this(() -> new Evaluator(trackSeed), threads, cache, store);
+    }
+
+    private ParallelEvaluator(Supplier<Evaluator> track, int threads, FitnessCache cache, EvaluationStore store) {
+        this.evaluators = ThreadLocal.withInitial(() -> {
+            Evaluator evaluator = track.get();
+            evaluator.setCache(cache);
+            evaluator.setStore(store);
+            return evaluator;
+        });
+        this.threads = threads;
+        this.pool = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "evaluator");
+            thread.setDaemon(true); //never keep the JVM alive once the algorithm is done
+            return thread;
+        });
+    }
+
+    @Override
+    public void evaluate(float[] genes, int[] cars, int count, float[] fitness) {
+        if (this.finished.length < count) {
+            this.finished = new boolean[count];
+            this.alive = new long[count];
+        }
+        boolean[] finished = this.finished;
+        forEach(count, i -> {
+            Evaluator evaluator = evaluators.get();
+            fitness[i] = evaluator.screen(genes, cars[i] * Population.GENOME_LENGTH, this.screenSteps);
+            finished[i] = evaluator.isFinished();
+            steps.add(evaluator.getSteps());
+        });
+        if (this.screenSteps == 0) {
+            return;
+        }
+
+        //run the cars furthest along to the end, breaking ties by index so the stage is deterministic
+        long[] alive = this.alive;
+        int living = 0;
+        for (int i = 0; i < count; i++) {
+            if (!finished[i]) {
+                alive[living++] = Util.rankKey(fitness[i], i);
+            }
+        }
+        Arrays.sort(alive, 0, living);
+        int promoted = Math.min(living, (int) Math.ceil(this.screenFraction * count));
+        forEach(promoted, p -> {
+            int i = Util.rankIndex(alive[p]);
+            Evaluator evaluator = evaluators.get();
+            fitness[i] = evaluator.rerun(genes, cars[i] * Population.GENOME_LENGTH);
+            steps.add(evaluator.getSteps());
+        });
+        this.screenedOut.add(living - promoted);
+    }
+
+    /**
+     * forEach
+     * @description Runs the task for every index below count on the worker threads and waits for all of them. Each
+     * worker takes the next index until none are left, so a generation costs one task per worker and not per car
+     * @param count the number of indices
+     * @param task the task, given each index once
+     */
+    private void forEach(int count, IntConsumer task) {
+        AtomicInteger next = new AtomicInteger();
+        ArrayList<Callable<Void>> workers = new ArrayList<>();
+        for (int w = 0; w < Math.min(this.threads, count); w++) {
+            workers.add(() -> {
+                for (int i = next.getAndIncrement(); i < count; i = next.getAndIncrement()) {
+                    task.accept(i);
+                }
+                return null;
+            });
+        }
+        try {
+            for (Future<Void> result : this.pool.invokeAll(workers)) {
+                result.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Evaluation was interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Evaluation failed", e.getCause());
+        }
+    }
+
+    /**
+     * setScreening
+     * @param screenSteps the steps every car is run for first, or 0 to run every car to the end straight away
+     * @param screenFraction the fraction of the generation run to the end after screening, out of the cars still alive
+     */
+    void setScreening(int screenSteps, double screenFraction) {
+        this.screenSteps = screenSteps;
+        this.screenFraction = screenFraction;
+    }
+
+    /**
+     * getScreenedOut
+     * @return the number of cars given their screening fitness because they were not far enough along to run to the end
+     */
+    long getScreenedOut() {
+        return this.screenedOut.sum();
+    }
+
+    /**
+     * getSteps
+     * @return the number of physics steps run since this evaluator was created
+     */
+    @Override
+    public long getSteps() {
+        return this.steps.sum();
+    }
+
+    /**
+     * shutdown
+     * @description Stops the worker threads
+     */
+    @Override
+    public void shutdown() {
+        this.pool.shutdownNow();
+    }
+
+    /**
+     * defaultThreads
+     * @return the number of worker threads to use when none is configured
+     */
+    static int defaultThreads() {
+        return Runtime.getRuntime().availableProcessors();
+    }
+
+}
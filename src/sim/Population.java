@@ -0,0 +1,109 @@
+package sim;
+
+import java.util.Arrays;
+
+/**
+ * Population.java
+ * @description This class holds the genomes and fitness scores of a generation in flat primitive arrays, one row of
+ * GENOME_LENGTH genes per car. The next generation is bred into a second set of genes of the same size and the two
+ * are swapped, so a run allocates its genomes once no matter how many generations it breeds
+ *
+ */
+class Population {
+
+    //the chassis vertices as magnitude and angle, followed by the wheels as radius and vertex
+    static final int GENOME_LENGTH = CarDefinition.NUM_VERTICES * 2 + CarDefinition.NUM_WHEELS * 2;
+
+    private final int size;
+    private float[] genes; //the current generation, car i at i * GENOME_LENGTH
+    private float[] nextGenes; //the generation being bred
+    private double[] fitness;
+
+    /**
+     * @param size the number of cars in each generation
+     */
+    Population(int size) {
+        this.size = size;
+        this.genes = new float[size * GENOME_LENGTH];
+        this.nextGenes = new float[size * GENOME_LENGTH];
+        this.fitness = new double[size];
+    }
+
+    /**
+     * swap
+     * @description Makes the bred generation the current one, and clears the fitness scores for it
+     */
+    void swap() {
+        float[] temp = this.genes;
+        this.genes = this.nextGenes;
+        this.nextGenes = temp;
+        Arrays.fill(this.fitness, 0);
+    }
+
+    /**
+     * getGenome
+     * @param car the index of the car
+     * @return a copy of the car's genome, for building the car
+     */
+    float[] getGenome(int car) {
+        return Arrays.copyOfRange(this.genes, car * GENOME_LENGTH, (car + 1) * GENOME_LENGTH);
+    }
+
+    /**
+     * setGenome
+     * @param car the index of the car
+     * @param genome the genome to copy into the car's row
+     */
+    void setGenome(int car, float[] genome) {
+        System.arraycopy(genome, 0, this.genes, car * GENOME_LENGTH, GENOME_LENGTH);
+    }
+
+    /**
+     * toArrays
+     * @return a copy of every genome of the current generation
+     */
+    float[][] toArrays() {
+        float[][] genomes = new float[this.size][];
+        for (int i = 0; i < this.size; i++) {
+            genomes[i] = getGenome(i);
+        }
+        return genomes;
+    }
+
+    double getFitness(int car) {
+        return this.fitness[car];
+    }
+
+    void setFitness(int car, double fitness) {
+        this.fitness[car] = fitness;
+    }
+
+    int size() {
+        return this.size;
+    }
+
+    /**
+     * genes
+     * @return the genes of the current generation, for the operators of the algorithm to read in place
+     */
+    float[] genes() {
+        return this.genes;
+    }
+
+    /**
+     * nextGenes
+     * @return the genes of the generation being bred, for the operators of the algorithm to write in place
+     */
+    float[] nextGenes() {
+        return this.nextGenes;
+    }
+
+    /**
+     * fitness
+     * @return the fitness scores of the current generation
+     */
+    double[] fitness() {
+        return this.fitness;
+    }
+
+}
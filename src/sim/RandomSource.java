@@ -0,0 +1,117 @@
+package sim;
+
+import java.util.SplittableRandom;
+
+/**
+ * RandomSource.java
+ * @description This class is the seeded source of every random number in the simulation. A source is not thread safe;
+ * each thread or car gets its own stream through split or forGenome, so no generator is ever shared and a whole run can
+ * be reproduced from a single seed
+ *
+ */
+class RandomSource {
+
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+    private SplittableRandom random;
+
+    /**
+     * @param seed the seed of the stream
+     */
+    RandomSource(long seed) {
+        this.random = new SplittableRandom(seed);
+    }
+
+    private RandomSource(SplittableRandom random) {
+        this.random = random;
+    }
+
+    /**
+     * nextFloat
+     * @param minValue the lower bound
+     * @param maxValue the upper bound
+     * @return a random float between the bounds
+     */
+    float nextFloat(float minValue, float maxValue) {
+        return minValue + (float) this.random.nextDouble() * (maxValue - minValue);
+    }
+
+    /**
+     * nextDouble
+     * @return a random double in [0, 1)
+     */
+    double nextDouble() {
+        return this.random.nextDouble();
+    }
+
+    /**
+     * nextInt
+     * @param bound the upper bound, exclusive
+     * @return a random int in [0, bound)
+     */
+    int nextInt(int bound) {
+        return this.random.nextInt(bound);
+    }
+
+    long nextLong() {
+        return this.random.nextLong();
+    }
+
+    /**
+     * split
+     * @return a new stream that is independent of this one, for handing to another thread
+     */
+    RandomSource split() {
+        return new RandomSource(this.random.split());
+    }
+
+    /**
+     * forGenome
+     * @description Derives the stream of a single car from the car's genome alone, so building the same genome always
+     * draws the same numbers no matter which run, thread or order builds it
+     * @param genome the genome of the car
+     * @return the stream of the car
+     */
+    static RandomSource forGenome(float[] genome) {
+        long hash = 0;
+        for (float gene : genome) {
+            hash = mix(hash + GOLDEN_GAMMA + Float.floatToIntBits(gene));
+        }
+        return new RandomSource(hash);
+    }
+
+    /**
+     * forChunk
+     * @description Derives the stream of one chunk of a parallel operator from the operator's seed, so each chunk
+     * draws the same numbers whichever thread runs it
+     * @param seed the seed of the operator
+     * @param chunk the index of the chunk
+     * @return the stream of the chunk
+     */
+    static RandomSource forChunk(long seed, int chunk) {
+        return new RandomSource(mix(seed + (chunk + 1) * GOLDEN_GAMMA));
+    }
+
+    /**
+     * at
+     * @description Derives a random float from a seed and an index without keeping any state, so any element of a
+     * sequence can be generated on its own
+     * @param seed the seed of the sequence
+     * @param index the index of the element
+     * @return a random float in [0, 1)
+     */
+    static float at(long seed, long index) {
+        return (mix(seed + (index + 1) * GOLDEN_GAMMA) >>> 40) / (float) (1 << 24);
+    }
+
+    /**
+     * mix
+     * @description The SplitMix64 finalizer, which turns consecutive inputs into unrelated outputs
+     */
+    static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+}
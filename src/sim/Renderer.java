@@ -0,0 +1,112 @@
+package sim;
+
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.paint.Color;
+import org.jbox2d.dynamics.World;
+
+/**
+ * Renderer.java
+ * @description This class draws the world onto a canvas every frame from the body transforms of a Snapshot, without
+ * keeping any scene graph nodes for the bodies or touching the physics world. The static ground is composited from the
+ * cached tiles of a GroundLayer and the car is drawn on top of it, skipping any wheel outside of the view
+ *
+ */
+class Renderer {
+
+    static final float SCALE = 50f; //pixels per metre
+
+    //where the followed body is drawn on the canvas
+    private static final double FOCUS_X = 250;
+    private static final double FOCUS_Y = 300;
+
+    private static final Color CHASSIS_COLOR = Color.valueOf("#2b2b2b");
+    private static final Color WHEEL_FILL = Color.rgb(255, 192, 203, 0.5);
+    private static final Color WHEEL_STROKE = Color.DEEPPINK;
+
+    private Canvas canvas;
+    private GraphicsContext gc;
+    private GroundLayer groundLayer;
+
+    private float cameraX = 1.0F; //the world position drawn at the focus point
+    private float cameraY = 2.0F;
+
+    //reusable buffers so drawing a frame does not allocate
+    private double[] xPoints = new double[8];
+    private double[] yPoints = new double[8];
+
+    /**
+     * @param canvas the canvas to draw on
+     * @param world the physics world, after the ground has been created
+     */
+    Renderer(Canvas canvas, World world) {
+        this.canvas = canvas;
+        this.gc = canvas.getGraphicsContext2D();
+        this.groundLayer = new GroundLayer(world);
+    }
+
+    /**
+     * render
+     * @description Clears the canvas, composites the ground and draws the car of a snapshot with its chassis at the
+     * focus point
+     * @param snapshot the latest snapshot published by the simulation
+     */
+    void render(Snapshot snapshot) {
+        if (snapshot.shape == null) {
+            return; //nothing has been published yet
+        }
+        float[] transforms = snapshot.transforms;
+        this.cameraX = transforms[0];
+        this.cameraY = transforms[1];
+
+        this.gc.clearRect(0, 0, this.canvas.getWidth(), this.canvas.getHeight());
+        this.groundLayer.draw(this.gc, this.cameraX * SCALE - FOCUS_X, -this.cameraY * SCALE - FOCUS_Y, this.canvas.getWidth(), this.canvas.getHeight());
+        this.gc.setLineWidth(1);
+        this.gc.setStroke(CHASSIS_COLOR);
+        float cos = (float) Math.cos(transforms[2]);
+        float sin = (float) Math.sin(transforms[2]);
+        for (float[] polygon : snapshot.shape.polygons) {
+            drawPolygon(polygon, transforms[0], transforms[1], cos, sin);
+        }
+        for (int i = 0; i < snapshot.shape.radii.length; i++) {
+            drawCircle(transforms[(i + 1) * 3], transforms[(i + 1) * 3 + 1], snapshot.shape.radii[i]);
+        }
+    }
+
+    private void drawPolygon(float[] polygon, float x, float y, float cos, float sin) {
+        int count = polygon.length / 2;
+        if (count > this.xPoints.length) {
+            this.xPoints = new double[count];
+            this.yPoints = new double[count];
+        }
+        for (int i = 0; i < count; i++) {
+            float localX = polygon[i * 2];
+            float localY = polygon[i * 2 + 1];
+            this.xPoints[i] = toScreenX(x + cos * localX - sin * localY);
+            this.yPoints[i] = toScreenY(y + sin * localX + cos * localY);
+        }
+        this.gc.strokePolygon(this.xPoints, this.yPoints, count);
+    }
+
+    private void drawCircle(float x, float y, float radius) {
+        double r = radius * SCALE;
+        double left = toScreenX(x) - r;
+        double top = toScreenY(y) - r;
+        if (left > this.canvas.getWidth() || top > this.canvas.getHeight() || left + r * 2 < 0 || top + r * 2 < 0) {
+            return; //outside of the view
+        }
+        this.gc.setFill(WHEEL_FILL);
+        this.gc.fillOval(left, top, r * 2, r * 2);
+        this.gc.setStroke(WHEEL_STROKE);
+        this.gc.strokeOval(left, top, r * 2, r * 2);
+    }
+
+    private double toScreenX(float x) {
+        return FOCUS_X + (x - this.cameraX) * SCALE;
+    }
+
+    private double toScreenY(float y) {
+        return FOCUS_Y - (y - this.cameraY) * SCALE;
+    }
+
+}
@@ -0,0 +1,188 @@
+package sim;
+
+import org.jbox2d.dynamics.World;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Simulation.java
+ * @description This class runs the physics and the genetic algorithm on a thread of its own, publishing the state of
+ * the car being evaluated into a Snapshot.Buffer. The window only reads the latest snapshot, so drawing never slows down
+ * the simulation and a slow generation turnover never stalls the window
+ *
+ */
+class Simulation implements Runnable {
+
+    static final int MAX_SPEED = 0; //steps as fast as possible instead of a fixed multiple of real time
+    private static final double MAX_CATCH_UP = 0.1; //the most real time a single update may catch up on
+    private static final long PUBLISH_INTERVAL = 1_000_000_000L / Evaluator.FPS; //nanoseconds between snapshots at max speed
+
+    private World world; //the physics world, containing the ground
+    private GeneticAlgorithm algorithm;
+    private RandomSource random;
+
+    //algorithm
+    private Population population;
+    private int generation = 0;
+    private int carNumber = 0;
+    private int carsGenerated = 0;
+
+    private Car car; //the car being evaluated
+    private Snapshot.CarShape shape; //the shape of the car being evaluated
+
+    private Snapshot.Buffer snapshots = new Snapshot.Buffer();
+    private volatile int speed = 1; //simulated seconds per real second
+    private volatile boolean running = false;
+    private Thread thread;
+
+    /**
+     * @param world the physics world, containing the ground
+     * @param algorithm the genetic algorithm breeding each generation
+     * @param populationSize the number of cars in each generation
+     * @param random the random source for the first generation
+     */
+    Simulation(World world, GeneticAlgorithm algorithm, int populationSize, RandomSource random) {
+        this.world = world;
+        this.algorithm = algorithm;
+        this.population = new Population(populationSize);
+        this.random = random;
+    }
+
+    /**
+     * start
+     * @description Starts the simulation thread
+     */
+    void start() {
+        this.running = true;
+        this.thread = new Thread(this, "simulation");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * stop
+     * @description Stops the simulation thread and waits for it to finish its current step
+     */
+    void stop() {
+        this.running = false;
+        LockSupport.unpark(this.thread);
+        try {
+            this.thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void run() {
+        createCar();
+        publish();
+        long last = System.nanoTime();
+        long lastPublish = last;
+        double accumulator = 0; //simulated time not yet stepped
+        while (this.running) {
+            long now = System.nanoTime();
+            int currentSpeed = this.speed;
+            if (currentSpeed == MAX_SPEED) {
+                step();
+                accumulator = 0;
+                if (now - lastPublish >= PUBLISH_INTERVAL) {
+                    publish();
+                    lastPublish = now;
+                }
+            } else {
+                accumulator += Math.min((now - last) / 1e9, MAX_CATCH_UP) * currentSpeed;
+                while (accumulator >= Evaluator.TIME_STEP && this.running) {
+                    step();
+                    accumulator -= Evaluator.TIME_STEP;
+                }
+                publish();
+                lastPublish = now;
+                //sleep until the next step is due
+                LockSupport.parkNanos((long) ((Evaluator.TIME_STEP - accumulator) / currentSpeed * 1e9));
+            }
+            last = now;
+        }
+    }
+
+    /**
+     * step
+     * @description Advances the physics by one fixed step, moving on to the next car when the current one dies
+     */
+    private void step() {
+        this.world.step(Evaluator.TIME_STEP, Evaluator.VELOCITY_ITERATIONS, Evaluator.POSITION_ITERATIONS);
+        if (this.car.checkDeath()) {
+            this.population.setGenome(this.carNumber, this.car.getGenome()); //the first generation is only known once built
+            this.population.setFitness(this.carNumber, this.car.getFitnessScore());
+            this.car.kill();
+            nextCar();
+            createCar();
+        }
+    }
+
+    /**
+     * nextCar
+     * @description Moves on to the next car, breeding the next generation after the last car of this one
+     */
+    private void nextCar() {
+        this.carsGenerated++;
+        this.carNumber++;
+        if (this.carNumber == this.population.size()) {
+            this.algorithm.nextGeneration(this.population);
+            this.carNumber = 0;
+            this.generation++;
+        }
+    }
+
+    /**
+     * createCar
+     * @description Creates the next car to evaluate
+     */
+    private void createCar() {
+        while (this.generation > 0) {
+            float[] genome = this.population.getGenome(this.carNumber);
+            int verdict = Evaluator.prescreening ? CarDefinition.prescreen(genome) : CarDefinition.VIABLE;
+            if (verdict == CarDefinition.VIABLE) {
+                this.car = new Car(genome, this.world, RandomSource.forGenome(genome));
+                break;
+            }
+            this.population.setFitness(this.carNumber, Evaluator.rejectedFitness(verdict)); //skip the hopeless car unseen
+            nextCar();
+        }
+        if (this.generation == 0) {
+            this.car = new Car(CarDefinition.createRandomCar(this.random), this.world);
+        }
+        this.shape = new Snapshot.CarShape(this.car);
+    }
+
+    /**
+     * publish
+     * @description Copies the current state into the back snapshot and hands it to the window
+     */
+    private void publish() {
+        Snapshot snapshot = this.snapshots.back();
+        snapshot.write(this.car, this.shape);
+        snapshot.generation = this.generation;
+        snapshot.carNumber = this.carNumber;
+        snapshot.carsGenerated = this.carsGenerated;
+        this.snapshots.publish();
+    }
+
+    /**
+     * latest
+     * @return the most recently published snapshot, for the window thread only
+     */
+    Snapshot latest() {
+        return this.snapshots.latest();
+    }
+
+    void setSpeed(int speed) {
+        this.speed = speed;
+        LockSupport.unpark(this.thread); //wake up to apply the new speed straight away
+    }
+
+    int getSpeed() {
+        return this.speed;
+    }
+
+}
@@ -0,0 +1,133 @@
+package sim;
+
+import org.jbox2d.collision.shapes.CircleShape;
+import org.jbox2d.collision.shapes.PolygonShape;
+import org.jbox2d.collision.shapes.ShapeType;
+import org.jbox2d.dynamics.Body;
+import org.jbox2d.dynamics.Fixture;
+
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Snapshot.java
+ * @description This class holds everything the window needs to draw one frame: the body transforms of the car being
+ * evaluated and the state of the algorithm. The simulation thread fills snapshots and hands them to the window through a
+ * Snapshot.Buffer, so neither thread ever waits on the other
+ *
+ */
+class Snapshot {
+
+    CarShape shape; //the shape of the car, null before the first car is published
+    float[] transforms = new float[0]; //x, y and angle of the chassis followed by each wheel
+
+    int generation;
+    int carNumber;
+    int carsGenerated;
+    float fitness;
+
+    /**
+     * write
+     * @description Copies the current state of a car into this snapshot
+     * @param car the car being evaluated
+     * @param shape the shape of the car
+     */
+    void write(Car car, CarShape shape) {
+        this.shape = shape;
+        int bodies = 1 + car.getWheels().size();
+        if (this.transforms.length != bodies * 3) {
+            this.transforms = new float[bodies * 3];
+        }
+        writeBody(0, car.getChassis());
+        for (int i = 0; i < car.getWheels().size(); i++) {
+            writeBody(i + 1, car.getWheels().get(i));
+        }
+        this.fitness = car.getFitnessScore();
+    }
+
+    private void writeBody(int index, Body body) {
+        this.transforms[index * 3] = body.getPosition().x;
+        this.transforms[index * 3 + 1] = body.getPosition().y;
+        this.transforms[index * 3 + 2] = body.getAngle();
+    }
+
+    /**
+     * CarShape
+     * @description The local geometry of a car, which never changes while the car is alive and so is shared between
+     * every snapshot of that car
+     */
+    static class CarShape {
+
+        final float[][] polygons; //the chassis polygons, as x0, y0, x1, y1, ...
+        final float[] radii; //the radius of each wheel
+
+        /**
+         * @param car the car to take the geometry of
+         */
+        CarShape(Car car) {
+            ArrayList<float[]> parts = new ArrayList<>();
+            for (Fixture fixture = car.getChassis().getFixtureList(); fixture != null; fixture = fixture.getNext()) {
+                if (fixture.getType() == ShapeType.POLYGON) {
+                    PolygonShape shape = (PolygonShape) fixture.getShape();
+                    float[] polygon = new float[shape.getVertexCount() * 2];
+                    for (int i = 0; i < shape.getVertexCount(); i++) {
+                        polygon[i * 2] = shape.getVertex(i).x;
+                        polygon[i * 2 + 1] = shape.getVertex(i).y;
+                    }
+                    parts.add(polygon);
+                }
+            }
+            this.polygons = parts.toArray(new float[0][]);
+            this.radii = new float[car.getWheels().size()];
+            for (int i = 0; i < this.radii.length; i++) {
+                CircleShape shape = (CircleShape) car.getWheels().get(i).getFixtureList().getShape();
+                this.radii[i] = shape.getRadius();
+            }
+        }
+
+    }
+
+    /**
+     * Buffer
+     * @description A lock-free triple buffer. The writer always owns one snapshot and the reader another, and the third
+     * is swapped between them atomically, so the reader always gets the most recently published snapshot
+     */
+    static class Buffer {
+
+        private static final int FRESH = 4; //set when the shared snapshot has not been read yet
+
+        private final Snapshot[] snapshots = {new Snapshot(), new Snapshot(), new Snapshot()};
+        private final AtomicInteger shared = new AtomicInteger(0); //the index of the shared snapshot, plus FRESH
+        private int back = 1; //owned by the writer
+        private int front = 2; //owned by the reader
+
+        /**
+         * back
+         * @return the snapshot for the writer to fill
+         */
+        Snapshot back() {
+            return this.snapshots[this.back];
+        }
+
+        /**
+         * publish
+         * @description Hands the filled back snapshot to the reader and takes the shared one to fill next
+         */
+        void publish() {
+            this.back = this.shared.getAndSet(this.back | FRESH) & 3;
+        }
+
+        /**
+         * latest
+         * @return the most recently published snapshot, which stays valid until the next call
+         */
+        Snapshot latest() {
+            if ((this.shared.get() & FRESH) != 0) {
+                this.front = this.shared.getAndSet(this.front) & 3;
+            }
+            return this.snapshots[this.front];
+        }
+
+    }
+
+}
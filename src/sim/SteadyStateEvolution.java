@@ -0,0 +1,234 @@
+package sim;
+
+import java.util.ArrayList;
+import java.util.PriorityQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * SteadyStateEvolution.java
+ * @description This class runs the genetic algorithm without a generation barrier. Each worker thread evaluates a car,
+ * puts it into the population straight away in place of a weak car, and breeds its next car from the population as it
+ * is at that moment, so no worker ever waits for the slowest car of a generation. The workers only share the
+ * population, for a short insertion and selection; evaluation and breeding run outside the lock. The order the workers
+ * finish in depends on timing, so unlike Evolution a run is not reproducible from its seed
+ *
+ */
+class SteadyStateEvolution {
+
+    static final int REPLACE_WORST = 0; //the child takes the place of the weakest car in the population
+    static final int REPLACE_TOURNAMENT = 1; //the child takes the place of the weakest of tournamentSize random cars
+
+    private final Population population;
+    private final GeneticAlgorithm algorithm;
+    private final int replacement;
+    private final int tournamentSize;
+    private final int threads;
+    private final RandomSource random;
+    private final ArrayList<float[]> track;
+    private final FitnessCache cache; //null when caching is off
+    private final EvaluationStore store; //null when not using one
+
+    //guarded by the population
+    private final PriorityQueue<Integer> weakest; //the evaluated cars, weakest first, when replacing the worst
+    private final boolean[] pending; //cars of the first generation still being evaluated
+    private int firstGeneration = 0; //the cars of the first generation handed out so far
+    private long started = 0;
+    private long carsEvaluated = 0;
+    private float bestFitness = 0;
+
+    private final LongAdder steps = new LongAdder();
+    private final LongAdder busyNanos = new LongAdder(); //time the workers spent evaluating and breeding
+    private long elapsedNanos = 0;
+    private volatile Throwable failure;
+
+    /**
+     * @param seed the seed of the run, which the track and the first generation are drawn from
+     * @param populationSize the number of cars in the population, more than the number of threads
+     * @param replacement the replacement method, REPLACE_WORST or REPLACE_TOURNAMENT
+     * @param mutationRate the chance of each gene mutating
+     * @param mutationEffect the largest change a mutation makes to a gene
+     * @param threads the number of worker threads
+     * @param cacheSize the most genomes to remember the fitness of, or 0 to simulate every genome
+     * @param store the evaluation store shared with other runs, or null to not use one
+     */
+    SteadyStateEvolution(long seed, int populationSize, int replacement, double mutationRate, double mutationEffect, int threads, int cacheSize, EvaluationStore store) {
+        if (populationSize <= threads) {
+            throw new IllegalArgumentException("Population size must be more than the " + threads + " threads but was " + populationSize);
+        }
+        this.random = new RandomSource(seed);
+        this.track = Ground.randomTrack(this.random);
+        this.cache = cacheSize > 0 ? new FitnessCache(cacheSize) : null;
+        this.store = store;
+        this.algorithm = new GeneticAlgorithm(GeneticAlgorithm.TOURNAMENT, mutationRate, mutationEffect, this.random);
+        this.tournamentSize = GeneticAlgorithm.DEFAULT_TOURNAMENT_SIZE;
+        this.population = Evolution.randomPopulation(populationSize, this.random);
+        this.replacement = replacement;
+        this.threads = threads;
+        double[] fitness = this.population.fitness();
+        this.weakest = new PriorityQueue<>(populationSize, (car, other) -> Double.compare(fitness[car], fitness[other]));
+        this.pending = new boolean[populationSize];
+    }
+
+    /**
+     * run
+     * @description Evaluates cars on the worker threads until the given number more have been evaluated. The first
+     * populationSize cars of a run are the random first generation, and every car after that is a child
+     * @param cars the number of cars to evaluate
+     */
+    void run(long cars) {
+        long target;
+        synchronized (this.population) {
+            target = this.started + cars;
+        }
+        ArrayList<Thread> workers = new ArrayList<>();
+        for (int i = 0; i < this.threads; i++) {
+            RandomSource stream = this.random.split();
+            Thread worker = new Thread(() -> work(target, stream), "steady-state");
+            worker.setDaemon(true); //never keep the JVM alive once the algorithm is done
+            workers.add(worker);
+        }
+        long start = System.nanoTime();
+        for (Thread worker : workers) {
+            worker.start();
+        }
+        try {
+            for (Thread worker : workers) {
+                worker.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Evolution was interrupted", e);
+        }
+        this.elapsedNanos += System.nanoTime() - start;
+        if (this.failure != null) {
+            throw new IllegalStateException("Evaluation failed", this.failure);
+        }
+    }
+
+    /**
+     * work
+     * @description The loop of a worker thread: take a car, evaluate it and put it into the population
+     * @param target the number of cars to have started when the run is done
+     * @param random the random source of the worker
+     */
+    private void work(long target, RandomSource random) {
+        Evaluator evaluator = new Evaluator(this.track);
+        evaluator.setCache(this.cache);
+        evaluator.setStore(this.store);
+        float[] parent0 = new float[Population.GENOME_LENGTH];
+        float[] parent1 = new float[Population.GENOME_LENGTH];
+        float[] points = new float[CarDefinition.NUM_VERTICES * 2];
+        try {
+            while (this.failure == null) {
+                float[] genome = new float[Population.GENOME_LENGTH];
+                int car = -1; //the index of a first generation car, or -1 for a child
+                synchronized (this.population) {
+                    if (this.started >= target) {
+                        return;
+                    }
+                    this.started++;
+                    if (this.firstGeneration < this.population.size()) {
+                        car = this.firstGeneration++;
+                        this.pending[car] = true;
+                        copy(car, genome);
+                    } else {
+                        double[] fitness = this.population.fitness();
+                        copy(this.algorithm.tournamentPick(fitness, this.population.size(), random), parent0);
+                        copy(this.algorithm.tournamentPick(fitness, this.population.size(), random), parent1);
+                    }
+                }
+                long start = System.nanoTime();
+                if (car < 0) {
+                    this.algorithm.breedChild(parent0, parent1, genome, random, points);
+                }
+                float fitness = evaluator.evaluate(genome);
+                this.steps.add(evaluator.getSteps());
+                this.busyNanos.add(System.nanoTime() - start);
+                insert(car, genome, fitness, random);
+            }
+        } catch (Throwable e) {
+            this.failure = e;
+        }
+    }
+
+    /**
+     * insert
+     * @description Puts an evaluated car into the population, a first generation car in its own place and a child in
+     * place of the car the replacement method picks
+     */
+    private void insert(int car, float[] genome, float fitness, RandomSource random) {
+        synchronized (this.population) {
+            if (car >= 0) {
+                this.pending[car] = false;
+            } else if (this.replacement == REPLACE_WORST) {
+                car = this.weakest.poll();
+                this.population.setGenome(car, genome);
+            } else {
+                car = replacementTournament(random);
+                this.population.setGenome(car, genome);
+            }
+            this.population.setFitness(car, fitness);
+            if (this.replacement == REPLACE_WORST) {
+                this.weakest.add(car);
+            }
+            this.carsEvaluated++;
+            this.bestFitness = Math.max(this.bestFitness, fitness);
+        }
+    }
+
+    /**
+     * replacementTournament
+     * @return the weakest of tournamentSize random cars, leaving out first generation cars still being evaluated
+     */
+    private int replacementTournament(RandomSource random) {
+        double[] fitness = this.population.fitness();
+        int loser = -1;
+        for (int k = 0; k < this.tournamentSize; k++) {
+            int challenger;
+            do {
+                challenger = random.nextInt(this.population.size()); //fewer cars than threads are pending
+            } while (this.pending[challenger]);
+            if (loser < 0 || fitness[challenger] < fitness[loser]) {
+                loser = challenger;
+            }
+        }
+        return loser;
+    }
+
+    private void copy(int car, float[] genome) {
+        System.arraycopy(this.population.genes(), car * Population.GENOME_LENGTH, genome, 0, Population.GENOME_LENGTH);
+    }
+
+    long getCarsEvaluated() {
+        synchronized (this.population) {
+            return this.carsEvaluated;
+        }
+    }
+
+    long getSteps() {
+        return this.steps.sum();
+    }
+
+    float getBestFitness() {
+        synchronized (this.population) {
+            return this.bestFitness;
+        }
+    }
+
+    /**
+     * getCache
+     * @return the fitness cache of the run, or null when caching is off
+     */
+    FitnessCache getCache() {
+        return this.cache;
+    }
+
+    /**
+     * getUtilization
+     * @return the fraction of the worker threads' time spent evaluating and breeding rather than waiting, over every run
+     */
+    double getUtilization() {
+        return this.elapsedNanos == 0 ? 0 : this.busyNanos.sum() / ((double) this.elapsedNanos * this.threads);
+    }
+
+}
@@ -0,0 +1,219 @@
+package sim;
+
+import org.jbox2d.collision.shapes.ChainShape;
+import org.jbox2d.common.Vec2;
+import org.jbox2d.dynamics.Body;
+import org.jbox2d.dynamics.BodyDef;
+import org.jbox2d.dynamics.FixtureDef;
+import org.jbox2d.dynamics.World;
+
+import java.util.Arrays;
+
+/**
+ * StreamingGround.java
+ * @description This class generates the ground in chunks while the cars drive. Each car keeps a window of chunks alive
+ * around itself: the chunk it is on, one full chunk behind it to roll back onto, and the chunks up to AHEAD in front of
+ * it. A chunk no car's window holds is destroyed, so however far the cars drive or spread apart the live bodies stay
+ * bounded by the number of cars. Every tile angle is derived from the seed and the tile index alone, so the track is
+ * the same however far it gets streamed, and a chunk destroyed between two cars is built the same way if a car gets
+ * back to it. The track has no end, so Ground.maxSegments does not apply and the cars on it are only stopped by the Car
+ * limits
+ *
+ */
+class StreamingGround {
+
+    static final int CHUNK_TILES = 50; //the number of tiles in each chunk
+    private static final float AHEAD = 60f; //how far ahead of each car the ground must exist
+
+    private World world; //the physics world
+    private long seed; //the seed the tile angles are derived from
+
+    //where each chunk generated so far starts, which only grows by two floats every CHUNK_TILES tiles
+    private float[] startX = {0f};
+    private float[] startY = {-0.5f};
+    private int known = 1; //the number of chunks whose start is known
+
+    private Body[] bodies = new Body[16]; //the body of each live chunk, by chunk index
+    private int[] marks = new int[16]; //the last update each chunk was in a car's window
+    private int[] live = new int[16]; //the indices of the live chunks
+    private int liveCount = 0;
+    private int update = 0;
+
+    /**
+     * @param world the physics world
+     * @param seed the seed of the track
+     */
+    StreamingGround(World world, long seed) {
+        this.world = world;
+        this.seed = seed;
+    }
+
+    /**
+     * update
+     * @description Keeps the window of a single car alive and destroys every other chunk
+     * @param x the x coordinate of the car
+     */
+    void update(float x) {
+        this.update++;
+        keepWindow(x);
+        destroyUnmarked();
+    }
+
+    /**
+     * update
+     * @description Keeps the window of every car alive and destroys the chunks outside all of them
+     * @param positions the x coordinates of the cars
+     * @param count the number of cars, from the start of positions
+     */
+    void update(float[] positions, int count) {
+        this.update++;
+        for (int i = 0; i < count; i++) {
+            keepWindow(positions[i]);
+        }
+        destroyUnmarked();
+    }
+
+    private void keepWindow(float x) {
+        int last = chunkAt(x + AHEAD);
+        for (int chunk = Math.max(0, chunkAt(x) - 1); chunk <= last; chunk++) {
+            if (chunk >= this.bodies.length) {
+                this.bodies = Arrays.copyOf(this.bodies, chunk * 2);
+                this.marks = Arrays.copyOf(this.marks, chunk * 2);
+            }
+            if (this.bodies[chunk] == null) {
+                this.bodies[chunk] = createChunk(chunk);
+                if (this.liveCount == this.live.length) {
+                    this.live = Arrays.copyOf(this.live, this.liveCount * 2);
+                }
+                this.live[this.liveCount++] = chunk;
+            }
+            this.marks[chunk] = this.update;
+        }
+    }
+
+    private void destroyUnmarked() {
+        int kept = 0;
+        for (int i = 0; i < this.liveCount; i++) {
+            int chunk = this.live[i];
+            if (this.marks[chunk] == this.update) {
+                this.live[kept++] = chunk;
+            } else {
+                this.world.destroyBody(this.bodies[chunk]);
+                this.bodies[chunk] = null;
+            }
+        }
+        this.liveCount = kept;
+    }
+
+    /**
+     * chunkAt
+     * @param x an x coordinate
+     * @return the index of the chunk that spans x, or 0 before the start of the track
+     */
+    private int chunkAt(float x) {
+        while (this.startX[this.known - 1] <= x) {
+            extend();
+        }
+        int chunk = Arrays.binarySearch(this.startX, 0, this.known, x);
+        return chunk >= 0 ? chunk : Math.max(0, -chunk - 2);
+    }
+
+    /**
+     * extend
+     * @description Works out where the next chunk starts, from the end of the last known one
+     */
+    private void extend() {
+        if (this.known == this.startX.length) {
+            this.startX = Arrays.copyOf(this.startX, this.known * 2);
+            this.startY = Arrays.copyOf(this.startY, this.known * 2);
+        }
+        float x = this.startX[this.known - 1];
+        float y = this.startY[this.known - 1];
+        int first = (this.known - 1) * CHUNK_TILES;
+        for (int i = 0; i < CHUNK_TILES; i++) {
+            float angle = tileAngle(first + i);
+            x += (float) Math.cos(angle);
+            y += (float) Math.sin(angle);
+        }
+        this.startX[this.known] = x;
+        this.startY[this.known] = y;
+        this.known++;
+    }
+
+    /**
+     * createChunk
+     * @description Creates a chunk of tiles as a single chain body. The ghost vertices are set to the neighbouring
+     * tiles so the cars roll smoothly across the seam between two chunks
+     * @param chunk the index of the chunk, whose end is already known
+     * @return the body of the chunk
+     */
+    private Body createChunk(int chunk) {
+        int first = chunk * CHUNK_TILES;
+        Vec2[] surface = new Vec2[CHUNK_TILES + 1];
+        surface[0] = new Vec2(this.startX[chunk], this.startY[chunk]);
+        for (int i = 0; i < CHUNK_TILES; i++) {
+            float angle = tileAngle(first + i);
+            surface[i + 1] = new Vec2((float) Math.cos(angle), (float) Math.sin(angle)).addLocal(surface[i]);
+        }
+        surface[CHUNK_TILES].set(this.startX[chunk + 1], this.startY[chunk + 1]); //the same seam as the next chunk
+        ChainShape chain = new ChainShape();
+        chain.createChain(surface, surface.length);
+        if (chunk > 0) {
+            float angle = tileAngle(first - 1);
+            chain.setPrevVertex(surface[0].sub(new Vec2((float) Math.cos(angle), (float) Math.sin(angle))));
+        }
+        float next = tileAngle(first + CHUNK_TILES);
+        chain.setNextVertex(new Vec2((float) Math.cos(next), (float) Math.sin(next)).addLocal(surface[CHUNK_TILES]));
+        FixtureDef fixture = new FixtureDef();
+        fixture.setFriction(0.5f);
+        fixture.setShape(chain);
+
+        Body body = this.world.createBody(new BodyDef());
+        body.createFixture(fixture);
+        return body;
+    }
+
+    /**
+     * tileAngle
+     * @description Derives the angle of a tile from the seed and its index, with the same flat start and distribution
+     * as Ground.randomTrack
+     * @param tile the index of the tile
+     * @return the angle of the tile
+     */
+    float tileAngle(int tile) {
+        if (tile < 4) {
+            return 0f;
+        }
+        float angle = (-10f + RandomSource.at(this.seed, tile) * 18f) * 8f / 100;
+        return (tile - 4) % 2 == 0 ? angle : -angle;
+    }
+
+    /**
+     * destroy
+     * @description Destroys every live chunk
+     */
+    void destroy() {
+        for (int i = 0; i < this.liveCount; i++) {
+            this.world.destroyBody(this.bodies[this.live[i]]);
+            this.bodies[this.live[i]] = null;
+        }
+        this.liveCount = 0;
+    }
+
+    int getChunkCount() {
+        return this.liveCount;
+    }
+
+    /**
+     * getEnd
+     * @return the x coordinate the furthest live chunk reaches
+     */
+    float getEnd() {
+        int furthest = -1;
+        for (int i = 0; i < this.liveCount; i++) {
+            furthest = Math.max(furthest, this.live[i]);
+        }
+        return furthest < 0 ? 0 : this.startX[furthest + 1];
+    }
+
+}
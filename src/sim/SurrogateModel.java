@@ -0,0 +1,136 @@
+package sim;
+
+import java.util.Arrays;
+
+/**
+ * SurrogateModel.java
+ * @description This class predicts the fitness of a genome from genomes already evaluated, as the mean fitness of the
+ * k nearest of them weighted by closeness. Genes are compared in units of their standard deviation over the samples,
+ * so magnitudes, angles, radii and wheel vertices all count alike. Only the most recent capacity samples are kept, so
+ * memory and prediction time stay bounded however long a run is
+ *
+ */
+class SurrogateModel {
+
+    static final int DEFAULT_NEIGHBOURS = 5;
+    static final int DEFAULT_CAPACITY = 10000;
+
+    private final int neighbours;
+    private final int capacity;
+    private final float[] genes; //sample i at i * GENOME_LENGTH, overwritten oldest first once full
+    private final float[] fitness;
+    private final double[] sum; //the sum of each gene over the samples kept
+    private final double[] squares;
+    private final double[] scale; //reused by every prediction, so the model is not thread safe
+    private final double[] nearest;
+    private final int[] nearestSample;
+    private int size = 0;
+    private int next = 0; //the sample to overwrite next
+
+    /**
+     * @param neighbours the number of nearest samples a prediction is made from
+     * @param capacity the most samples to keep
+     */
+    SurrogateModel(int neighbours, int capacity) {
+        this.neighbours = neighbours;
+        this.capacity = capacity;
+        this.genes = new float[capacity * Population.GENOME_LENGTH];
+        this.fitness = new float[capacity];
+        this.sum = new double[Population.GENOME_LENGTH];
+        this.squares = new double[Population.GENOME_LENGTH];
+        this.scale = new double[Population.GENOME_LENGTH];
+        this.nearest = new double[neighbours];
+        this.nearestSample = new int[neighbours];
+    }
+
+    /**
+     * add
+     * @description Trains the model on an evaluated genome, forgetting the oldest sample once full
+     * @param genome the genes holding the genome
+     * @param start the index of the genome's first gene
+     * @param fitness the fitness the genome scored in the simulation
+     */
+    void add(float[] genome, int start, float fitness) {
+        int length = Population.GENOME_LENGTH;
+        int offset = this.next * length;
+        for (int k = 0; k < length; k++) {
+            if (this.size == this.capacity) {
+                double old = this.genes[offset + k];
+                this.sum[k] -= old;
+                this.squares[k] -= old * old;
+            }
+            float gene = genome[start + k];
+            this.genes[offset + k] = gene;
+            this.sum[k] += gene;
+            this.squares[k] += (double) gene * gene;
+        }
+        this.fitness[this.next] = fitness;
+        this.next = (this.next + 1) % this.capacity;
+        this.size = Math.min(this.size + 1, this.capacity);
+    }
+
+    /**
+     * predict
+     * @param genome the genes holding the genome
+     * @param start the index of the genome's first gene
+     * @return the predicted fitness of the genome, or 0 before the model has any samples
+     */
+    float predict(float[] genome, int start) {
+        if (this.size == 0) {
+            return 0;
+        }
+        int length = Population.GENOME_LENGTH;
+        //a gene that never varies tells the samples apart no better than one left out
+        double[] scale = this.scale;
+        for (int k = 0; k < length; k++) {
+            double mean = this.sum[k] / this.size;
+            double variance = this.squares[k] / this.size - mean * mean;
+            scale[k] = variance > 1e-12 ? 1 / variance : 0;
+        }
+
+        //the k nearest samples, kept sorted by distance by insertion
+        int count = Math.min(this.neighbours, this.size);
+        double[] nearest = this.nearest;
+        int[] nearestSample = this.nearestSample;
+        Arrays.fill(nearest, Double.POSITIVE_INFINITY);
+        for (int sample = 0; sample < this.size; sample++) {
+            int offset = sample * length;
+            double distance = 0;
+            for (int g = 0; g < length && distance < nearest[count - 1]; g++) {
+                double difference = genome[start + g] - this.genes[offset + g];
+                distance += difference * difference * scale[g];
+            }
+            if (distance < nearest[count - 1]) {
+                int i = count - 1;
+                while (i > 0 && nearest[i - 1] > distance) {
+                    nearest[i] = nearest[i - 1];
+                    nearestSample[i] = nearestSample[i - 1];
+                    i--;
+                }
+                nearest[i] = distance;
+                nearestSample[i] = sample;
+            }
+        }
+
+        double weights = 0;
+        double prediction = 0;
+        for (int i = 0; i < count; i++) {
+            if (nearest[i] == 0) {
+                return this.fitness[nearestSample[i]]; //the genome itself has been evaluated
+            }
+            double weight = 1 / Math.sqrt(nearest[i]);
+            weights += weight;
+            prediction += weight * this.fitness[nearestSample[i]];
+        }
+        return (float) (prediction / weights);
+    }
+
+    /**
+     * size
+     * @return the number of samples the model holds
+     */
+    int size() {
+        return this.size;
+    }
+
+}
@@ -0,0 +1,400 @@
+package sim;
+
+import org.jbox2d.callbacks.DebugDraw;
+import org.jbox2d.callbacks.PairCallback;
+import org.jbox2d.callbacks.TreeCallback;
+import org.jbox2d.callbacks.TreeRayCastCallback;
+import org.jbox2d.collision.AABB;
+import org.jbox2d.collision.RayCastInput;
+import org.jbox2d.collision.broadphase.BroadPhase;
+import org.jbox2d.collision.broadphase.DynamicTree;
+import org.jbox2d.common.Vec2;
+import org.jbox2d.dynamics.Body;
+import org.jbox2d.dynamics.BodyType;
+import org.jbox2d.dynamics.Fixture;
+import org.jbox2d.dynamics.World;
+import org.jbox2d.pooling.normal.DefaultWorldPool;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.IdentityHashMap;
+
+/**
+ * TrackBroadPhase.java
+ * @description This broadphase keeps the static track and the moving cars in two separate trees and only ever pairs
+ * a car fixture with a track fixture. Every car fixture uses groupIndex -1, so any pair between two car fixtures would
+ * be filtered out anyway; skipping them keeps the broadphase cost flat when many cars overlap on the same track.
+ * The pairs are reported in the order the default broadphase reports them for a single car on a built track, track
+ * fixture first, so a car scores exactly the same alone or in a batch: the default sorts its pairs by proxy id, which
+ * puts the track in the order it was built and every car fixture in the order it was created. Here track fixtures are
+ * ordered by where they start along the track, which also holds for a streamed track whose chunks are destroyed and
+ * built again, and car fixtures by their proxy id, always the lowest free one so a car's ids follow the order its
+ * fixtures were created in. Bodies are not expected to change between static and dynamic after their fixtures are
+ * created
+ *
+ */
+class TrackBroadPhase implements BroadPhase {
+
+    private static final int DYNAMIC = 1; //tag for nodes of the dynamic tree
+
+    private World world; //the world the proxies belong to, to find the body of a new proxy
+
+    private DynamicTree staticTree = new DynamicTree();
+    private DynamicTree dynamicTree = new DynamicTree();
+
+    //proxy id -> tagged tree node, and tree node -> proxy id for each tree
+    private int[] proxyNodes = new int[16];
+    private int[] staticProxies = new int[16];
+    private int[] dynamicProxies = new int[16];
+    private float[] starts = new float[16]; //proxy id -> where a static proxy starts along the track
+    private final BitSet freeProxies = new BitSet();
+    private int proxyCapacity = 0;
+    private int proxyCount = 0;
+
+    //proxies created since the last update, which still need to be sorted into their tree
+    private int[] pendingProxies = new int[16];
+    private AABB[] pendingBounds = new AABB[16];
+    private int pendingCount = 0;
+    private final IdentityHashMap<Object, Integer> pendingIndex = new IdentityHashMap<>(); //fixture proxy -> pending slot
+
+    //the static and dynamic proxy of every pair found since the last pair update
+    private int[] pairStatic = new int[16];
+    private int[] pairDynamic = new int[16];
+    private int pairCount = 0;
+    private long[] pairOrder = new long[16];
+    private long[] group = new long[16];
+
+    //proxies that moved since the last pair update
+    private int[] moveBuffer = new int[16];
+    private int moveCount = 0;
+
+    private final PairQuery pairQuery = new PairQuery();
+    private final TreeQuery treeQuery = new TreeQuery();
+    private final TreeRayCast treeRayCast = new TreeRayCast();
+
+    private TrackBroadPhase() {
+    }
+
+    /**
+     * createWorld
+     * @description Creates a world whose broadphase is a TrackBroadPhase
+     * @return the new world
+     */
+    static World createWorld() {
+        TrackBroadPhase broadPhase = new TrackBroadPhase();
+        broadPhase.world = new World(Evaluator.GRAVITY, new DefaultWorldPool(World.WORLD_POOL_SIZE, World.WORLD_POOL_CONTAINER_SIZE), broadPhase);
+        return broadPhase.world;
+    }
+
+    /**
+     * createProxy
+     * @description The fixture is only attached to its proxy after this call returns, so every proxy starts in the
+     * dynamic tree and static ones are moved over on the next update
+     */
+    @Override
+    public int createProxy(AABB aabb, Object userData) {
+        int node = dynamicTree.createProxy(aabb, userData);
+        int proxyId = allocateProxy();
+        this.proxyNodes[proxyId] = (node << 1) | DYNAMIC;
+        this.dynamicProxies = setProxy(this.dynamicProxies, node, proxyId);
+        if (this.pendingCount == this.pendingProxies.length) {
+            this.pendingProxies = Arrays.copyOf(this.pendingProxies, this.pendingCount * 2);
+            this.pendingBounds = Arrays.copyOf(this.pendingBounds, this.pendingCount * 2);
+        }
+        this.pendingIndex.put(userData, this.pendingCount);
+        this.pendingProxies[this.pendingCount] = proxyId;
+        this.pendingBounds[this.pendingCount++] = new AABB(aabb);
+        this.proxyCount++;
+        bufferMove(proxyId);
+        return proxyId;
+    }
+
+    @Override
+    public void destroyProxy(int proxyId) {
+        unbufferMove(proxyId);
+        Integer pending = this.pendingIndex.remove(getUserData(proxyId));
+        if (pending != null) {
+            this.pendingProxies[pending] = NULL_PROXY;
+        }
+        int node = this.proxyNodes[proxyId];
+        tree(node).destroyProxy(node >> 1);
+        this.freeProxies.set(proxyId);
+        this.proxyCount--;
+    }
+
+    @Override
+    public void moveProxy(int proxyId, AABB aabb, Vec2 displacement) {
+        int node = this.proxyNodes[proxyId];
+        if (tree(node).moveProxy(node >> 1, aabb, displacement)) {
+            bufferMove(proxyId);
+        }
+    }
+
+    @Override
+    public void touchProxy(int proxyId) {
+        bufferMove(proxyId);
+    }
+
+    @Override
+    public Object getUserData(int proxyId) {
+        int node = this.proxyNodes[proxyId];
+        return tree(node).getUserData(node >> 1);
+    }
+
+    @Override
+    public AABB getFatAABB(int proxyId) {
+        int node = this.proxyNodes[proxyId];
+        return tree(node).getFatAABB(node >> 1);
+    }
+
+    @Override
+    public boolean testOverlap(int proxyIdA, int proxyIdB) {
+        return AABB.testOverlap(getFatAABB(proxyIdA), getFatAABB(proxyIdB));
+    }
+
+    @Override
+    public int getProxyCount() {
+        return this.proxyCount;
+    }
+
+    @Override
+    public void drawTree(DebugDraw argDraw) {
+        staticTree.drawTree(argDraw);
+        dynamicTree.drawTree(argDraw);
+    }
+
+    /**
+     * updatePairs
+     * @description Queries every moved proxy against the opposite tree only, then reports the pairs found, once each,
+     * in the order of the track fixtures along the track and of the car fixtures by proxy id
+     * @param callback the contact manager
+     */
+    @Override
+    public void updatePairs(PairCallback callback) {
+        sortPending();
+        this.pairCount = 0;
+        for (int i = 0; i < this.moveCount; i++) {
+            int proxyId = this.moveBuffer[i];
+            if (proxyId == NULL_PROXY) {
+                continue;
+            }
+            int node = this.proxyNodes[proxyId];
+            pairQuery.proxyId = proxyId;
+            pairQuery.dynamic = (node & DYNAMIC) == DYNAMIC;
+            DynamicTree other = pairQuery.dynamic ? staticTree : dynamicTree;
+            other.query(pairQuery, tree(node).getFatAABB(node >> 1));
+        }
+        this.moveCount = 0;
+        if (this.pairOrder.length < this.pairCount) {
+            this.pairOrder = new long[this.pairStatic.length];
+            this.group = new long[this.pairStatic.length];
+        }
+        for (int i = 0; i < this.pairCount; i++) { //where the track fixture starts, then the position of the pair
+            this.pairOrder[i] = (long) sortable(this.starts[this.pairStatic[i]]) << 32 | i;
+        }
+        Arrays.sort(this.pairOrder, 0, this.pairCount);
+        for (int i = 0; i < this.pairCount; ) {
+            long start = this.pairOrder[i] >> 32;
+            int size = 0;
+            for (; i < this.pairCount && this.pairOrder[i] >> 32 == start; i++) {
+                int pair = (int) this.pairOrder[i];
+                this.group[size++] = (long) this.pairDynamic[pair] << 32 | this.pairStatic[pair];
+            }
+            Arrays.sort(this.group, 0, size); //the car fixtures on the same track fixture, by proxy id
+            for (int k = 0; k < size; k++) {
+                if (k == 0 || this.group[k] != this.group[k - 1]) {
+                    callback.addPair(getUserData((int) this.group[k]), getUserData((int) (this.group[k] >> 32)));
+                }
+            }
+        }
+    }
+
+    @Override
+    public void query(TreeCallback callback, AABB aabb) {
+        sortPending();
+        treeQuery.callback = callback;
+        treeQuery.proxies = this.staticProxies;
+        staticTree.query(treeQuery, aabb);
+        treeQuery.proxies = this.dynamicProxies;
+        dynamicTree.query(treeQuery, aabb);
+        treeQuery.callback = null;
+    }
+
+    @Override
+    public void raycast(TreeRayCastCallback callback, RayCastInput input) {
+        sortPending();
+        treeRayCast.callback = callback;
+        treeRayCast.proxies = this.staticProxies;
+        staticTree.raycast(treeRayCast, input);
+        treeRayCast.proxies = this.dynamicProxies;
+        dynamicTree.raycast(treeRayCast, input);
+        treeRayCast.callback = null;
+    }
+
+    @Override
+    public int getTreeHeight() {
+        return Math.max(staticTree.computeHeight(), dynamicTree.computeHeight());
+    }
+
+    @Override
+    public int getTreeBalance() {
+        return Math.max(staticTree.getMaxBalance(), dynamicTree.getMaxBalance());
+    }
+
+    @Override
+    public float getTreeQuality() {
+        return dynamicTree.getAreaRatio();
+    }
+
+    /**
+     * sortPending
+     * @description Moves the proxies of static bodies created since the last update into the static tree. New bodies
+     * and fixtures are put at the head of the world's lists, so their proxies are found without walking the rest
+     */
+    private void sortPending() {
+        if (this.pendingIndex.isEmpty()) {
+            this.pendingCount = 0;
+            return;
+        }
+        for (Body body = this.world.getBodyList(); body != null && !this.pendingIndex.isEmpty(); body = body.getNext()) {
+            for (Fixture fixture = body.getFixtureList(); fixture != null; fixture = fixture.getNext()) {
+                for (int j = 0; j < fixture.m_proxyCount; j++) {
+                    Integer pending = this.pendingIndex.remove(fixture.m_proxies[j]);
+                    if (pending != null && body.getType() == BodyType.STATIC) {
+                        moveToStaticTree(this.pendingProxies[pending], this.pendingBounds[pending]);
+                    }
+                }
+            }
+        }
+        this.pendingIndex.clear();
+        Arrays.fill(this.pendingBounds, 0, this.pendingCount, null);
+        this.pendingCount = 0;
+    }
+
+    private void moveToStaticTree(int proxyId, AABB aabb) {
+        int node = this.proxyNodes[proxyId] >> 1;
+        Object userData = dynamicTree.getUserData(node);
+        dynamicTree.destroyProxy(node);
+        int staticNode = staticTree.createProxy(aabb, userData);
+        this.proxyNodes[proxyId] = staticNode << 1;
+        this.staticProxies = setProxy(this.staticProxies, staticNode, proxyId);
+        if (proxyId >= this.starts.length) {
+            this.starts = Arrays.copyOf(this.starts, Math.max(proxyId + 1, this.starts.length * 2));
+        }
+        this.starts[proxyId] = aabb.lowerBound.x;
+    }
+
+    private DynamicTree tree(int node) {
+        return (node & DYNAMIC) == DYNAMIC ? dynamicTree : staticTree;
+    }
+
+    /**
+     * allocateProxy
+     * @return the lowest free proxy id, so the ids of fixtures created one after another keep their order
+     */
+    private int allocateProxy() {
+        int free = this.freeProxies.nextSetBit(0);
+        if (free >= 0) {
+            this.freeProxies.clear(free);
+            return free;
+        }
+        if (this.proxyCapacity == this.proxyNodes.length) {
+            this.proxyNodes = Arrays.copyOf(this.proxyNodes, this.proxyCapacity * 2);
+        }
+        return this.proxyCapacity++;
+    }
+
+    /**
+     * setProxy
+     * @description Stores a value in a lookup array, growing it when needed
+     * @return the lookup array, which may have been reallocated
+     */
+    private static int[] setProxy(int[] proxies, int index, int proxyId) {
+        if (index >= proxies.length) {
+            proxies = Arrays.copyOf(proxies, Math.max(index + 1, proxies.length * 2));
+        }
+        proxies[index] = proxyId;
+        return proxies;
+    }
+
+    private void bufferMove(int proxyId) {
+        if (this.moveCount == this.moveBuffer.length) {
+            this.moveBuffer = Arrays.copyOf(this.moveBuffer, this.moveCount * 2);
+        }
+        this.moveBuffer[this.moveCount++] = proxyId;
+    }
+
+    private void unbufferMove(int proxyId) {
+        for (int i = 0; i < this.moveCount; i++) {
+            if (this.moveBuffer[i] == proxyId) {
+                this.moveBuffer[i] = NULL_PROXY;
+            }
+        }
+    }
+
+    /**
+     * sortable
+     * @return an int that orders like the given float
+     */
+    private static int sortable(float value) {
+        int bits = Float.floatToIntBits(value);
+        return bits ^ ((bits >> 31) & Integer.MAX_VALUE);
+    }
+
+    private void addPair(int staticProxy, int dynamicProxy) {
+        if (this.pairCount == this.pairStatic.length) {
+            this.pairStatic = Arrays.copyOf(this.pairStatic, this.pairCount * 2);
+            this.pairDynamic = Arrays.copyOf(this.pairDynamic, this.pairCount * 2);
+        }
+        this.pairStatic[this.pairCount] = staticProxy;
+        this.pairDynamic[this.pairCount++] = dynamicProxy;
+    }
+
+    /**
+     * PairQuery
+     * @description Collects a pair for every proxy of the opposite tree that overlaps a moved proxy
+     */
+    private class PairQuery implements TreeCallback {
+        private int proxyId;
+        private boolean dynamic;
+
+        @Override
+        public boolean treeCallback(int node) {
+            if (dynamic) {
+                addPair(staticProxies[node], proxyId);
+            } else {
+                addPair(proxyId, dynamicProxies[node]);
+            }
+            return true;
+        }
+    }
+
+    /**
+     * TreeQuery
+     * @description Maps the nodes reported by one of the trees back to proxy ids
+     */
+    private static class TreeQuery implements TreeCallback {
+        private TreeCallback callback;
+        private int[] proxies;
+
+        @Override
+        public boolean treeCallback(int node) {
+            return callback.treeCallback(proxies[node]);
+        }
+    }
+
+    /**
+     * TreeRayCast
+     * @description Maps the nodes reported by one of the trees back to proxy ids
+     */
+    private static class TreeRayCast implements TreeRayCastCallback {
+        private TreeRayCastCallback callback;
+        private int[] proxies;
+
+        @Override
+        public float raycastCallback(RayCastInput input, int node) {
+            return callback.raycastCallback(input, proxies[node]);
+        }
+    }
+
+}
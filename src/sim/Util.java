@@ -5,8 +5,8 @@ import org.jbox2d.common.Vec2;
 
 class Util {
 
-    static float nextFloat(float minValue, float maxValue) {
-        return MathUtils.randomFloat(minValue, maxValue);
+    static float nextFloat(RandomSource random, float minValue, float maxValue) {
+        return random.nextFloat(minValue, maxValue);
     }
 
     static Vec2 polarToRectangular(float magnitude, float angle){
@@ -22,12 +22,20 @@ class Util {
         return polar;
     }
 
-    static float toPixelX(float x) {
-        return x * 50f;
+    /**
+     * rankKey
+     * @description Packs a score and an index into a long, so sorting the keys orders them by score, highest first, and
+     * equal scores by index, without boxing either
+     * @param score the score, where anything below 0 counts as 0
+     * @param index the index, at least 0
+     * @return the key, from which rankIndex takes the index back
+     */
+    static long rankKey(float score, int index) {
+        return ((long) (Integer.MAX_VALUE - Float.floatToIntBits(Math.max(score, 0F))) << 32) | index;
     }
 
-    static float toPixelY(float y) {
-        return 600 - y * 50f;
+    static int rankIndex(long key) {
+        return (int) key;
     }
 
     static float round2(float number) {